@@ -0,0 +1,51 @@
+package com.socialmedia.app.config;
+
+import com.socialmedia.app.storage.ImageStorage;
+import com.socialmedia.app.storage.InMemoryImageStorage;
+import com.socialmedia.app.storage.LocalImageStorage;
+import com.socialmedia.app.storage.PackedImageStorage;
+import com.socialmedia.app.storage.TimedImageStorage;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Configuration class for the storage of image files.
+ */
+@Configuration
+public class ImageStorageConfig {
+    /**
+     * Configures the image storage backend selected by {@code posts.images.storage}, either local, packed or memory.
+     * The packed backend keeps its segments in the {@code packs} subdirectory and larger files as the local backend does.
+     *
+     * @param backend       the name of the storage backend
+     * @param directory     the directory the local and packed backends keep the files in
+     * @param segmentSize   the size of a segment of the packed backend
+     * @param maxPackedSize the size up to which files are packed
+     * @param minLiveRatio  the share of a segment taken by live files below which the segment is compacted
+     * @param meterRegistry the registry the storage timers are registered with
+     * @return the configured ImageStorage bean
+     * @throws IOException if the packed backend can't open its segments
+     */
+    @Bean
+    public ImageStorage imageStorage(@Value("${posts.images.storage:local}") String backend,
+                                     @Value("${posts.images.directory:savedImages}") Path directory,
+                                     @Value("${posts.images.pack.segment-size:256MB}") DataSize segmentSize,
+                                     @Value("${posts.images.pack.max-image-size:256KB}") DataSize maxPackedSize,
+                                     @Value("${posts.images.pack.min-live-ratio:0.5}") double minLiveRatio,
+                                     MeterRegistry meterRegistry) throws IOException {
+        ImageStorage storage = switch (backend) {
+            case "local" -> new LocalImageStorage(directory);
+            case "packed" -> new PackedImageStorage(directory.resolve("packs"), Math.toIntExact(segmentSize.toBytes()),
+                    Math.toIntExact(maxPackedSize.toBytes()), minLiveRatio, new LocalImageStorage(directory));
+            case "memory" -> new InMemoryImageStorage();
+            default -> throw new IllegalArgumentException("Unknown image storage: " + backend);
+        };
+        return new TimedImageStorage(storage, backend, meterRegistry);
+    }
+}
@@ -5,9 +5,11 @@ import com.nimbusds.jose.jwk.JWKSet;
 import com.nimbusds.jose.jwk.RSAKey;
 import com.nimbusds.jose.jwk.source.JWKSource;
 import com.nimbusds.jose.proc.SecurityContext;
+import com.socialmedia.app.service.SignedImageUrlService;
 import com.socialmedia.app.service.UserDetailsServiceImpl;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.ProviderManager;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
@@ -25,6 +27,7 @@ import org.springframework.security.oauth2.jwt.JwtEncoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
 import org.springframework.security.oauth2.jwt.NimbusJwtEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.AuthorizationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -65,6 +68,31 @@ public class SecurityConfig {
         return new ProviderManager(authProvider);
     }
 
+    /**
+     * Configures the filter chain of signed image URLs, checked before the main security filter chain.
+     * Requests only need a valid signature, so no JWT is decoded and no security context or session is set up.
+     *
+     * @param http                  the HttpSecurity object.
+     * @param signedImageUrlService the service verifying the signatures of image URLs.
+     * @return the configured SecurityFilterChain object.
+     * @throws Exception if an error occurs during configuration.
+     */
+    @Bean
+    @Order(1)
+    public SecurityFilterChain signedImageFilterChain(HttpSecurity http, SignedImageUrlService signedImageUrlService) throws Exception {
+        return http
+                .securityMatcher(SignedImageUrlService.PATH + "**")
+                .cors(Customizer.withDefaults())
+                .csrf(AbstractHttpConfigurer::disable)
+                .requestCache(AbstractHttpConfigurer::disable)
+                .securityContext(AbstractHttpConfigurer::disable)
+                .sessionManagement(AbstractHttpConfigurer::disable)
+                .anonymous(AbstractHttpConfigurer::disable)
+                .addFilterBefore(new SignedImageUrlFilter(signedImageUrlService), AuthorizationFilter.class)
+                .authorizeHttpRequests(auth -> auth.anyRequest().permitAll())
+                .build();
+    }
+
     /**
      * Configures the security filter chain.
      *
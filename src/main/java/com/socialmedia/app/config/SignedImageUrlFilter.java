@@ -0,0 +1,53 @@
+package com.socialmedia.app.config;
+
+import com.socialmedia.app.service.SignedImageUrlService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Filter letting requests for signed image URLs through only if their signature is valid and they haven't expired.
+ * Requests are rejected with 403 Forbidden otherwise.
+ */
+public class SignedImageUrlFilter extends OncePerRequestFilter {
+    private final SignedImageUrlService signedImageUrlService;
+
+    /**
+     * Constructs a SignedImageUrlFilter verifying URLs with the given service.
+     *
+     * @param signedImageUrlService the service verifying the signatures of image URLs
+     */
+    public SignedImageUrlFilter(SignedImageUrlService signedImageUrlService) {
+        this.signedImageUrlService = signedImageUrlService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!isSigned(request)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN, "Invalid or expired image URL!");
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private boolean isSigned(HttpServletRequest request) {
+        var path = request.getRequestURI().substring(request.getContextPath().length());
+        var expires = request.getParameter("expires");
+        var signature = request.getParameter("signature");
+        if (!path.startsWith(SignedImageUrlService.PATH) || expires == null || signature == null)
+            return false;
+
+        try {
+            long imageId = Long.parseLong(path.substring(SignedImageUrlService.PATH.length()));
+            return signedImageUrlService.verify(imageId, Long.parseLong(expires), signature);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.socialmedia.app.config;
+
+import com.socialmedia.app.util.SendfileResourceHttpMessageConverter;
+import com.socialmedia.app.util.SendfileResourceRegionHttpMessageConverter;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.ResourceHttpMessageConverter;
+import org.springframework.http.converter.ResourceRegionHttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * Configuration class for Spring MVC settings.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+    /**
+     * Replaces the default resource converters with ones writing files with {@code sendfile}.
+     *
+     * @param converters the configured message converters
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.replaceAll(converter -> {
+            if (converter.getClass() == ResourceHttpMessageConverter.class)
+                return new SendfileResourceHttpMessageConverter();
+            if (converter.getClass() == ResourceRegionHttpMessageConverter.class)
+                return new SendfileResourceRegionHttpMessageConverter();
+            return converter;
+        });
+    }
+}
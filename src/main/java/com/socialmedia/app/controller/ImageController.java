@@ -0,0 +1,61 @@
+package com.socialmedia.app.controller;
+
+import com.socialmedia.app.service.PostService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+/**
+ * Controller class for downloading images through signed URLs, as returned with posts.
+ * The signature is verified by the security filter chain of signed image URLs before a request gets here.
+ */
+@RestController
+@RequestMapping("/api/v1/images")
+@Tag(name = "Images", description = "Endpoints for downloading post images through signed URLs")
+public class ImageController {
+    private final PostService postService;
+
+    /**
+     * Constructs the ImageController class.
+     *
+     * @param postService the PostService implementation.
+     */
+    public ImageController(PostService postService) {
+        this.postService = postService;
+    }
+
+    /**
+     * Retrieves an image through a signed URL.
+     *
+     * @param id        the ID of the image to retrieve.
+     * @param size      the size of the image to retrieve.
+     * @param expires   the expiry time of the URL, in seconds since the epoch.
+     * @param signature the signature of the URL.
+     * @return the ResponseEntity containing the image file as a Resource.
+     * @throws IOException if an error occurs while retrieving the image.
+     */
+    @GetMapping("/{id}")
+    @Operation(summary = "Get Image Through Signed URL")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Image retrieved successfully"),
+            @ApiResponse(responseCode = "206", description = "Requested range of the image retrieved successfully"),
+            @ApiResponse(responseCode = "304", description = "Image not modified"),
+            @ApiResponse(responseCode = "400", description = "Invalid image size"),
+            @ApiResponse(responseCode = "403", description = "Invalid or expired image URL"),
+            @ApiResponse(responseCode = "404", description = "Image with given id not found"),
+            @ApiResponse(responseCode = "416", description = "Requested range not satisfiable")
+    })
+    public ResponseEntity<Resource> getImage(@Parameter(description = "The ID of the image to retrieve.", required = true) @PathVariable Long id,
+                                             @Parameter(description = "The size of the image: original, large (1600px), medium (800px) or thumbnail (200px). The original is returned until the requested size has been generated.") @RequestParam(defaultValue = "original") String size,
+                                             @Parameter(description = "The expiry time of the URL, as returned with the post.", required = true) @RequestParam long expires,
+                                             @Parameter(description = "The signature of the URL, as returned with the post.", required = true) @RequestParam String signature) throws IOException {
+        return postService.getSignedImage(id, size, expires);
+    }
+}
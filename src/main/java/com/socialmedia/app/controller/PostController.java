@@ -1,7 +1,10 @@
 package com.socialmedia.app.controller;
 
+import com.socialmedia.app.dto.CursorPageDto;
 import com.socialmedia.app.dto.PostDto;
+import com.socialmedia.app.dto.PostSummaryDto;
 import com.socialmedia.app.model.Post;
+import com.socialmedia.app.service.FeedStreamService;
 import com.socialmedia.app.service.PostService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -11,13 +14,15 @@ import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
 import java.io.IOException;
 import java.security.Principal;
@@ -33,14 +38,17 @@ import java.util.Set;
 @Tag(name = "Posts", description = "Endpoints for handling post-related operations")
 public class PostController {
     private final PostService postService;
+    private final FeedStreamService feedStreamService;
 
     /**
      * Constructs the PostController class.
      *
-     * @param postService the PostService implementation.
+     * @param postService       the PostService implementation.
+     * @param feedStreamService the FeedStreamService implementation.
      */
-    public PostController(PostService postService) {
+    public PostController(PostService postService, FeedStreamService feedStreamService) {
         this.postService = postService;
+        this.feedStreamService = feedStreamService;
     }
 
     /**
@@ -79,6 +87,28 @@ public class PostController {
         return postService.getPostsByUsername(username);
     }
 
+    /**
+     * Retrieves a page of the posts by the specified username using cursor-based pagination, newest first.
+     *
+     * @param username the username of the user to retrieve the posts for.
+     * @param cursor   the cursor returned with the previous page, absent for the first page.
+     * @param size     the number of posts per page.
+     * @return a page of PostSummaryDto objects with the cursor of the next page.
+     */
+    @GetMapping("/user/{username}/scroll")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Scroll Posts by Username")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Posts page retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor"),
+            @ApiResponse(responseCode = "404", description = "User not found")
+    })
+    public CursorPageDto<PostSummaryDto> scrollPostsByUsername(@Parameter(description = "The username of the user to retrieve the posts for.", required = true) @PathVariable String username,
+                                                               @Parameter(description = "The cursor of the page to retrieve, as returned with the previous page. Omit for the first page.") @RequestParam(required = false) String cursor,
+                                                               @Parameter(description = "The size of each page. Default is 10.", example = "10") @RequestParam(defaultValue = "10") int size) {
+        return postService.getPostsByUsername(username, cursor, size);
+    }
+
     /**
      * Creates a new post.
      *
@@ -98,6 +128,25 @@ public class PostController {
         return postService.createPost(post, principal);
     }
 
+    /**
+     * Creates several posts at once.
+     *
+     * @param posts     the Post objects containing the post details.
+     * @param principal the authenticated principal user.
+     * @return the IDs of the created posts, in the order of the given posts.
+     */
+    @PostMapping("/bulk")
+    @ResponseStatus(HttpStatus.CREATED)
+    @Operation(summary = "Create Posts")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Posts created successfully"),
+            @ApiResponse(responseCode = "400", description = "Too many posts"),
+            @ApiResponse(responseCode = "404", description = "User not found")
+    })
+    public List<Long> createPosts(@RequestBody List<Post> posts, Principal principal) {
+        return postService.createPosts(posts, principal);
+    }
+
     /**
      * Edits an existing post.
      *
@@ -112,7 +161,8 @@ public class PostController {
             @ApiResponse(responseCode = "202", description = "Post edited successfully",
                     content = @Content(schema = @Schema(implementation = PostDto.class))),
             @ApiResponse(responseCode = "403", description = "You can't edit someone's post!"),
-            @ApiResponse(responseCode = "404", description = "User not found")
+            @ApiResponse(responseCode = "404", description = "User or post not found"),
+            @ApiResponse(responseCode = "409", description = "Post has been edited in the meantime!")
     })
     public PostDto editPost(@RequestBody Post post, Principal principal) {
         return postService.editPost(post, principal);
@@ -141,18 +191,24 @@ public class PostController {
     /**
      * Retrieves the image associated with a post.
      *
-     * @param id the ID of the post to retrieve the image for.
-     * @return the ResponseEntity containing the image as an InputStreamResource.
+     * @param id   the ID of the post to retrieve the image for.
+     * @param size the size of the image to retrieve.
+     * @return the ResponseEntity containing the image file as a Resource.
      * @throws IOException if an error occurs while retrieving the image.
      */
     @GetMapping("/image/{id}")
     @Operation(summary = "Get Post Image")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Post image retrieved successfully"),
-            @ApiResponse(responseCode = "404", description = "Image with given id not found")
+            @ApiResponse(responseCode = "206", description = "Requested range of the post image retrieved successfully"),
+            @ApiResponse(responseCode = "304", description = "Post image not modified"),
+            @ApiResponse(responseCode = "400", description = "Invalid image size"),
+            @ApiResponse(responseCode = "404", description = "Image with given id not found"),
+            @ApiResponse(responseCode = "416", description = "Requested range not satisfiable")
     })
-    public ResponseEntity<InputStreamResource> getImage(@Parameter(description = "The ID of the post to retrieve the image from.", required = true) @PathVariable Long id) throws IOException {
-        return postService.getImage(id);
+    public ResponseEntity<Resource> getImage(@Parameter(description = "The ID of the post to retrieve the image from.", required = true) @PathVariable Long id,
+                                             @Parameter(description = "The size of the image: original, large (1600px), medium (800px) or thumbnail (200px). The original is returned until the requested size has been generated.") @RequestParam(defaultValue = "original") String size) throws IOException {
+        return postService.getImage(id, size);
     }
 
     /**
@@ -203,4 +259,48 @@ public class PostController {
 
         return postService.getUserFeed(principal, PageRequest.of(page, size, Sort.Direction.fromString(direction), "createdAt"));
     }
+
+    /**
+     * Retrieves a page of the user feed using cursor-based pagination.
+     *
+     * @param cursor    the cursor returned with the previous page, absent for the first page.
+     * @param size      the number of posts per page.
+     * @param principal the authenticated principal user.
+     * @return a page of PostDto objects with the cursor of the next page.
+     */
+    @GetMapping("/feed/scroll")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Scroll User Feed")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "User feed page retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor"),
+            @ApiResponse(responseCode = "404", description = "User not found")
+    })
+    public CursorPageDto<PostDto> scrollUserFeed(@Parameter(description = "The cursor of the page to retrieve, as returned with the previous page. Omit for the first page.") @RequestParam(required = false) String cursor,
+                                                 @Parameter(description = "The size of each page of the feed. Default is 3.", example = "3") @RequestParam(defaultValue = "3") int size,
+                                                 Principal principal) {
+        return postService.getUserFeed(principal, cursor, size);
+    }
+
+    /**
+     * Streams the user feed as newline-delimited JSON.
+     * The stream starts with the newest page of the feed and then receives new posts of the followed users as they are created.
+     *
+     * @param size      the number of posts in the initial page.
+     * @param principal the authenticated principal user.
+     * @return the ResponseEntity containing the emitter writing one PostDto object per line.
+     */
+    @GetMapping(value = "/feed/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream User Feed")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "User feed stream opened successfully"),
+            @ApiResponse(responseCode = "404", description = "User not found")
+    })
+    public ResponseEntity<ResponseBodyEmitter> streamUserFeed(@Parameter(description = "The number of posts in the initial page of the stream. Default is 3.", example = "3") @RequestParam(defaultValue = "3") int size,
+                                              Principal principal) {
+        return ResponseEntity
+                .ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(feedStreamService.openStream(principal, size));
+    }
 }
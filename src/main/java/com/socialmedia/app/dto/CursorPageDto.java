@@ -0,0 +1,13 @@
+package com.socialmedia.app.dto;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) representing a page of a list navigated by cursors.
+ *
+ * @param content    the items of the page
+ * @param nextCursor the cursor of the next page, or null if this is the last page
+ * @param <T>        the type of the items
+ */
+public record CursorPageDto<T>(List<T> content, String nextCursor) {
+}
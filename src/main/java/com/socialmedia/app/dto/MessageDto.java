@@ -33,6 +33,23 @@ public class MessageDto {
         this.chat = chat;
     }
 
+    /**
+     * Constructs a new MessageDto object with all fields, as selected by the read queries.
+     *
+     * @param id        the ID of the message
+     * @param text      the text content of the message
+     * @param fromUser  the username of the sender
+     * @param chat      the ID of the chat the message belongs to
+     * @param createdAt the creation timestamp of the message
+     */
+    public MessageDto(Long id, String text, String fromUser, Long chat, Instant createdAt) {
+        this.id = id;
+        this.text = text;
+        this.fromUser = fromUser;
+        this.chat = chat;
+        this.createdAt = createdAt;
+    }
+
     /**
      * Returns a string representation of the MessageDto object.
      *
@@ -20,6 +20,8 @@ public class PostDto {
     private Instant createdAt;
     private String user;
     private long[] images;
+    private String[] imageUrls;
+    private Long version;
 
     /**
      * Constructs a new PostDto object with the specified title and body.
@@ -32,6 +34,26 @@ public class PostDto {
         this.body = body;
     }
 
+    /**
+     * Constructs a new PostDto object without images, as selected by the read queries.
+     *
+     * @param id        the ID of the post
+     * @param title     the title of the post
+     * @param body      the body content of the post
+     * @param createdAt the creation timestamp of the post
+     * @param user      the username of the author of the post
+     * @param version   the version of the post, to be passed back when the post is edited
+     */
+    public PostDto(Long id, String title, String body, Instant createdAt, String user, Long version) {
+        this.id = id;
+        this.title = title;
+        this.body = body;
+        this.createdAt = createdAt;
+        this.user = user;
+        this.images = new long[0];
+        this.version = version;
+    }
+
     /**
      * Returns a string representation of the PostDto object.
      *
@@ -0,0 +1,10 @@
+package com.socialmedia.app.dto;
+
+/**
+ * Represents the link between a post and one of its images, containing only their IDs.
+ *
+ * @param postId the ID of the post
+ * @param id     the ID of the image
+ */
+public record PostImageEntry(Long postId, Long id) {
+}
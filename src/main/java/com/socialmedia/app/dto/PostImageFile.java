@@ -0,0 +1,27 @@
+package com.socialmedia.app.dto;
+
+/**
+ * Projection of an image of a post, containing only the post ID, the location of the image file and the storage holding it.
+ */
+public interface PostImageFile {
+    /**
+     * Returns the ID of the post.
+     *
+     * @return the ID of the post
+     */
+    Long getPostId();
+
+    /**
+     * Returns the location of the image file, relative to the image directory.
+     *
+     * @return the location of the image file
+     */
+    String getLocation();
+
+    /**
+     * Returns the ID of the instance whose image storage holds the file.
+     *
+     * @return the ID of the instance
+     */
+    String getStorage();
+}
@@ -0,0 +1,36 @@
+package com.socialmedia.app.dto;
+
+import java.time.Instant;
+
+/**
+ * Data Transfer Object (DTO) representing a post in a list, without its body and author.
+ *
+ * @param id        the ID of the post
+ * @param title     the title of the post
+ * @param createdAt the creation timestamp of the post
+ * @param images    the IDs of the images of the post
+ * @param imageUrls the signed URLs of the images of the post, in the order of their IDs
+ */
+public record PostSummaryDto(Long id, String title, Instant createdAt, long[] images, String[] imageUrls) {
+    /**
+     * Constructs a PostSummaryDto without images, as read from the posts table.
+     *
+     * @param id        the ID of the post
+     * @param title     the title of the post
+     * @param createdAt the creation timestamp of the post
+     */
+    public PostSummaryDto(Long id, String title, Instant createdAt) {
+        this(id, title, createdAt, new long[0], new String[0]);
+    }
+
+    /**
+     * Returns a copy of this summary with the given images.
+     *
+     * @param images    the IDs of the images of the post
+     * @param imageUrls the signed URLs of the images of the post
+     * @return the summary with the images
+     */
+    public PostSummaryDto withImages(long[] images, String[] imageUrls) {
+        return new PostSummaryDto(id, title, createdAt, images, imageUrls);
+    }
+}
@@ -0,0 +1,13 @@
+package com.socialmedia.app.dto;
+
+import java.time.Instant;
+
+/**
+ * Represents a post as a timeline entry, containing only its ID, author ID and creation timestamp.
+ *
+ * @param id        the ID of the post
+ * @param authorId  the ID of the author of the post
+ * @param createdAt the creation timestamp of the post
+ */
+public record PostTimelineEntry(Long id, Long authorId, Instant createdAt) {
+}
@@ -0,0 +1,10 @@
+package com.socialmedia.app.event;
+
+/**
+ * Published after a user has started or stopped following another user.
+ *
+ * @param followerId  the ID of the user whose following set has changed
+ * @param followingId the ID of the user who was followed or unfollowed
+ */
+public record FollowingChangedEvent(Long followerId, Long followingId) {
+}
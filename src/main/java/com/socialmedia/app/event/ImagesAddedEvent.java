@@ -0,0 +1,12 @@
+package com.socialmedia.app.event;
+
+import java.util.List;
+
+/**
+ * Published after image files have been uploaded and added to a post.
+ *
+ * @param postId    the ID of the post the images were added to
+ * @param locations the locations of the original image files
+ */
+public record ImagesAddedEvent(Long postId, List<String> locations) {
+}
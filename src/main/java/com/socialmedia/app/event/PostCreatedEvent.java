@@ -0,0 +1,13 @@
+package com.socialmedia.app.event;
+
+import java.time.Instant;
+
+/**
+ * Published after a new post has been saved.
+ *
+ * @param postId    the ID of the created post
+ * @param authorId  the ID of the user who created the post
+ * @param createdAt the creation timestamp of the post
+ */
+public record PostCreatedEvent(Long postId, Long authorId, Instant createdAt) {
+}
@@ -0,0 +1,10 @@
+package com.socialmedia.app.event;
+
+/**
+ * Published after a post has been deleted.
+ *
+ * @param postId   the ID of the deleted post
+ * @param authorId the ID of the user who created the post
+ */
+public record PostDeletedEvent(Long postId, Long authorId) {
+}
@@ -0,0 +1,10 @@
+package com.socialmedia.app.event;
+
+/**
+ * Published after the content of a post has been changed.
+ *
+ * @param postId   the ID of the updated post
+ * @param authorId the ID of the user who created the post
+ */
+public record PostUpdatedEvent(Long postId, Long authorId) {
+}
@@ -0,0 +1,15 @@
+package com.socialmedia.app.event;
+
+import java.util.List;
+
+/**
+ * Published after several posts of the same author have been saved at once,
+ * so that listeners look up the author's followers once for all of them.
+ * It is published inside the transaction saving the posts, so listeners run after it has committed:
+ * they never act on posts that are rolled back, and the posts they read back are already visible.
+ *
+ * @param authorId the ID of the user who created the posts
+ * @param posts    the created posts, in the order they were created
+ */
+public record PostsCreatedEvent(Long authorId, List<PostCreatedEvent> posts) {
+}
@@ -0,0 +1,11 @@
+package com.socialmedia.app.event;
+
+import java.util.List;
+
+/**
+ * Published after deleted posts and their images have been removed for good.
+ *
+ * @param postIds the IDs of the purged posts
+ */
+public record PostsPurgedEvent(List<Long> postIds) {
+}
@@ -15,17 +15,24 @@ import java.util.Objects;
 @Setter
 @NoArgsConstructor
 @Entity
-@Table(name = "images")
+@Table(name = "images", indexes = @Index(columnList = "location, storage"))
 public class Image {
     @Setter(AccessLevel.NONE)
     @Id
     @GeneratedValue
     private Long id;
 
+    // Named after the checksum of the content, images with the same content share the file
     private String location;
 
     private String mediaType;
 
+    // Hex-encoded SHA-256 of the file, computed while the file is uploaded
+    private String checksum;
+
+    // The ID of the instance whose image storage holds the file, images with the same content in other storages have their own file
+    private String storage;
+
     @ManyToOne(fetch = FetchType.LAZY)
     private Post post;
 
@@ -40,6 +47,19 @@ public class Image {
         this.mediaType = mediaType;
     }
 
+    /**
+     * Constructs a new Image object with the given location, media type and checksum.
+     *
+     * @param location   The location of the image.
+     * @param mediaType  The media type of the image.
+     * @param checksum   The hex-encoded SHA-256 checksum of the image file.
+     */
+    public Image(String location, String mediaType, String checksum) {
+        this.location = location;
+        this.mediaType = mediaType;
+        this.checksum = checksum;
+    }
+
     /**
      * Returns the string representation of the Image object.
      *
@@ -51,6 +71,8 @@ public class Image {
                 "id=" + id +
                 ", location='" + location + '\'' +
                 ", mediaType='" + mediaType + '\'' +
+                ", checksum='" + checksum + '\'' +
+                ", storage='" + storage + '\'' +
                 '}';
     }
 
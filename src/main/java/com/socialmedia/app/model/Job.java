@@ -0,0 +1,123 @@
+package com.socialmedia.app.model;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Represents a background job waiting to be run, or given up after its last attempt.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+// Ordered as the due jobs are claimed, so claiming reads the index from the start instead of sorting all due jobs
+@Table(name = "jobs", indexes = @Index(columnList = "priority desc, runAt"))
+public class Job {
+    // IDs are taken from the sequence in blocks of 50, so queueing a batch of jobs doesn't ask the database for each ID
+    @Setter(AccessLevel.NONE)
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "jobs_seq")
+    @SequenceGenerator(name = "jobs_seq", sequenceName = "jobs_seq", allocationSize = 50)
+    private Long id;
+
+    // Selects the handler the job is run by
+    private String type;
+
+    private String payload;
+
+    // The instance the job is run by, null if any instance can run it
+    private String owner;
+
+    // Jobs with a higher priority are claimed first
+    private int priority;
+
+    // Incremented whenever the job is claimed
+    private int attempts;
+
+    // When the job is due, pushed past the lease while it runs and past the backoff after it failed, null once it is given up
+    private Instant runAt;
+
+    private Instant createdAt;
+
+    private Instant failedAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    /**
+     * Constructs a new Job object with the given type, payload and priority, due at the given time.
+     *
+     * @param type      The type of the job.
+     * @param payload   The payload passed to the handler of the job.
+     * @param priority  The priority of the job.
+     * @param runAt     The time the job is due.
+     */
+    public Job(String type, String payload, int priority, Instant runAt) {
+        this(type, payload, null, priority, runAt);
+    }
+
+    /**
+     * Constructs a new Job object with the given type, payload, owner and priority, due at the given time.
+     *
+     * @param type      The type of the job.
+     * @param payload   The payload passed to the handler of the job.
+     * @param owner     The instance the job is run by, or null if any instance can run it.
+     * @param priority  The priority of the job.
+     * @param runAt     The time the job is due.
+     */
+    public Job(String type, String payload, String owner, int priority, Instant runAt) {
+        this.type = type;
+        this.payload = payload;
+        this.owner = owner;
+        this.priority = priority;
+        this.runAt = runAt;
+        this.createdAt = runAt;
+    }
+
+    /**
+     * Returns the string representation of the Job object.
+     *
+     * @return The string representation of the Job object.
+     */
+    @Override
+    public String toString() {
+        return "Job{" +
+                "id=" + id +
+                ", type='" + type + '\'' +
+                ", payload='" + payload + '\'' +
+                ", owner='" + owner + '\'' +
+                ", priority=" + priority +
+                ", attempts=" + attempts +
+                ", runAt=" + runAt +
+                '}';
+    }
+
+    /**
+     * Checks if the Job object is equal to another object.
+     *
+     * @param o The object to compare with.
+     * @return true if the objects are equal, false otherwise.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Job job)) return false;
+        return Objects.equals(getId(), job.getId()) && Objects.equals(getType(), job.getType()) && Objects.equals(getPayload(), job.getPayload());
+    }
+
+    /**
+     * Returns the hash code value for the Job object.
+     *
+     * @return The hash code value for the Job object.
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(getId(), getType(), getPayload());
+    }
+}
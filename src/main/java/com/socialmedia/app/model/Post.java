@@ -6,7 +6,9 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Where;
 
 import java.time.Instant;
 import java.util.Objects;
@@ -19,10 +21,17 @@ import java.util.Set;
 @Setter
 @NoArgsConstructor
 @Entity
-@Table(name = "posts")
+@Table(name = "posts", indexes = {
+        @Index(columnList = "user_id, createdAt DESC, id DESC"),
+        @Index(columnList = "deletedAt")
+})
+// Deleted posts are hidden from every query until the purger removes them
+@Where(clause = "deleted_at is null")
 public class Post {
+    // IDs are taken from the sequence in blocks of 50, so saving a batch of posts doesn't ask the database for each ID
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "posts_seq")
+    @SequenceGenerator(name = "posts_seq", sequenceName = "posts_seq", allocationSize = 50)
     private Long id;
 
     @NotBlank
@@ -34,9 +43,17 @@ public class Post {
     @CreationTimestamp
     private Instant createdAt;
 
+    // Incremented by every edit, an edit based on an older version is rejected
+    @Version
+    private Long version;
+
     @ManyToOne(fetch = FetchType.LAZY)
     private User user;
 
+    private Instant deletedAt;
+
+    // Loading the images of one post loads those of up to 50 posts of the same result with them
+    @BatchSize(size = 50)
     @OneToMany(mappedBy = "post", orphanRemoval = true, fetch = FetchType.LAZY)
     private Set<Image> images;
 
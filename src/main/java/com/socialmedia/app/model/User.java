@@ -8,6 +8,7 @@ import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.util.Objects;
 import java.util.Set;
@@ -43,11 +44,21 @@ public class User {
     private Set<Post> posts;
 
     @ManyToMany
+    @JoinTable(name = "users_following",
+            joinColumns = @JoinColumn(name = "followers_id"),
+            inverseJoinColumns = @JoinColumn(name = "following_id"),
+            indexes = @Index(columnList = "following_id"))
     private Set<User> following;
 
     @ManyToMany(mappedBy = "following")
     private Set<User> followers;
 
+    // Maintained by single-statement increments only, so saving a loaded user never overwrites a concurrent change
+    @Setter(AccessLevel.NONE)
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private long followerCount;
+
     @ManyToMany
     private Set<User> friends;
 
@@ -68,18 +79,20 @@ public class User {
      * Adds a user to the set of users that the user is following.
      *
      * @param user The user to follow.
+     * @return true if the user wasn't followed yet, false otherwise.
      */
-    public void followUser(User user) {
-        this.following.add(user);
+    public boolean followUser(User user) {
+        return this.following.add(user);
     }
 
     /**
      * Removes a user from the set of users that the user is following.
      *
      * @param user The user to unfollow.
+     * @return true if the user was followed, false otherwise.
      */
-    public void unFollowUser(User user) {
-        this.following.remove(user);
+    public boolean unFollowUser(User user) {
+        return this.following.remove(user);
     }
 
     /**
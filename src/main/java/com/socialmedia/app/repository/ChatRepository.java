@@ -1,7 +1,10 @@
 package com.socialmedia.app.repository;
 
+import com.socialmedia.app.dto.ChatDto;
 import com.socialmedia.app.model.Chat;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Optional;
 
@@ -18,4 +21,17 @@ public interface ChatRepository extends JpaRepository<Chat, Long> {
      * @return An Optional containing the Chat object if found, or an empty Optional if not found.
      */
     Optional<Chat> findByUser1_UsernameAndUser2_Username(String user1, String user2);
+
+    /**
+     * Retrieves a chat by the usernames of user1 and user2 as a DTO without messages.
+     *
+     * @param user1 The username of user1.
+     * @param user2 The username of user2.
+     * @return An Optional containing the chat DTO if found, or an empty Optional if not found.
+     */
+    @Query("""
+            select new com.socialmedia.app.dto.ChatDto(c.id, c.user1.username, c.user2.username)
+            from Chat c
+            where c.user1.username = :user1 and c.user2.username = :user2""")
+    Optional<ChatDto> findDtoByUsernames(@Param("user1") String user1, @Param("user2") String user2);
 }
@@ -1,11 +1,59 @@
 package com.socialmedia.app.repository;
 
+import com.socialmedia.app.dto.PostImageEntry;
+import com.socialmedia.app.dto.PostImageFile;
 import com.socialmedia.app.model.Image;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Repository interface for Image entities.
  * It provides methods for CRUD operations and querying Image objects in the database.
  */
 public interface ImageRepository extends JpaRepository<Image, Long> {
+    /**
+     * Retrieves the IDs of the images of the given posts.
+     *
+     * @param postIds the IDs of the posts
+     * @return a list of post and image ID pairs, ordered by image ID
+     */
+    @Query("select new com.socialmedia.app.dto.PostImageEntry(i.post.id, i.id) from Image i where i.post.id in :postIds order by i.id")
+    List<PostImageEntry> findEntriesByPostIds(@Param("postIds") Collection<Long> postIds);
+
+    /**
+     * Retrieves the files of the images of the given posts.
+     * Native, because the posts may be marked as deleted.
+     *
+     * @param postIds the IDs of the posts
+     * @return a list of post IDs, image file locations and the storages holding the files
+     */
+    @Query(value = "select post_id as \"postId\", location, storage from images where post_id in (:postIds)", nativeQuery = true)
+    List<PostImageFile> findFilesByPostIds(@Param("postIds") Collection<Long> postIds);
+
+    /**
+     * Checks whether any image uses the given file of the given storage.
+     * Images with the same content in one storage share one file, which may only be removed once the last of them is removed.
+     *
+     * @param location the location of the image file
+     * @param storage  the ID of the instance whose image storage holds the file
+     * @return true if an image uses the file
+     */
+    boolean existsByLocationAndStorage(String location, String storage);
+
+    /**
+     * Removes the images of the given posts from the database in one statement.
+     *
+     * @param postIds the IDs of the posts
+     * @return the number of removed images
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "delete from images where post_id in (:postIds)", nativeQuery = true)
+    int deleteByPostIds(@Param("postIds") Collection<Long> postIds);
 }
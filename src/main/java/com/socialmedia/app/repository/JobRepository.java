@@ -0,0 +1,110 @@
+package com.socialmedia.app.repository;
+
+import com.socialmedia.app.model.Job;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Repository interface for Job entities.
+ * It provides methods for claiming due jobs and recording their outcome.
+ */
+public interface JobRepository extends JpaRepository<Job, Long> {
+    /**
+     * Retrieves due jobs that can be run by the given instance, highest priority and longest due first,
+     * and locks them until the transaction ends.
+     * Jobs locked by other transactions are skipped instead of waited for ({@code for update skip locked}),
+     * so workers claiming at the same time get different jobs.
+     *
+     * @param now      the current time
+     * @param owner    the ID of the instance, jobs owned by other instances are left to them
+     * @param pageable the pageable object limiting the number of jobs
+     * @return a list of due jobs
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "-2"))
+    @Query("select j from Job j where j.runAt <= :now and (j.owner is null or j.owner = :owner) order by j.priority desc, j.runAt")
+    List<Job> findDue(@Param("now") Instant now, @Param("owner") String owner, Pageable pageable);
+
+    /**
+     * Counts the jobs that are due, can be run by the given instance and are not claimed by a worker.
+     *
+     * @param now   the current time
+     * @param owner the ID of the instance
+     * @return the number of due jobs
+     */
+    @Query("select count(j) from Job j where j.runAt <= :now and (j.owner is null or j.owner = :owner)")
+    long countDue(@Param("now") Instant now, @Param("owner") String owner);
+
+    /**
+     * Removes a completed job.
+     *
+     * @param id the ID of the job
+     * @return the number of removed jobs
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from Job j where j.id = :id")
+    int removeById(@Param("id") Long id);
+
+    /**
+     * Makes a failed job due again at the given time.
+     *
+     * @param id    the ID of the job
+     * @param runAt the time the job is retried
+     * @param error the error the job failed with
+     * @return the number of updated jobs
+     */
+    @Transactional
+    @Modifying
+    @Query("update Job j set j.runAt = :runAt, j.lastError = :error where j.id = :id")
+    int reschedule(@Param("id") Long id, @Param("runAt") Instant runAt, @Param("error") String error);
+
+    /**
+     * Gives up a job that failed its last attempt. The job is kept until it is pruned, but never claimed again.
+     *
+     * @param id       the ID of the job
+     * @param failedAt the time the job failed
+     * @param error    the error the job failed with
+     * @return the number of updated jobs
+     */
+    @Transactional
+    @Modifying
+    @Query("update Job j set j.runAt = null, j.failedAt = :failedAt, j.lastError = :error where j.id = :id")
+    int markFailed(@Param("id") Long id, @Param("failedAt") Instant failedAt, @Param("error") String error);
+
+    /**
+     * Gives up the owned jobs that have been due since before the given time, as no instance with the ID of their owner claims them.
+     * Jobs that are claimed or waiting for a retry are not due yet and kept.
+     *
+     * @param dueBefore the time before which the jobs became due
+     * @param failedAt  the time the jobs are given up
+     * @param error     the reason the jobs are given up
+     * @return the number of updated jobs
+     */
+    @Transactional
+    @Modifying
+    @Query("update Job j set j.runAt = null, j.failedAt = :failedAt, j.lastError = :error where j.owner is not null and j.runAt < :dueBefore")
+    int markOrphansFailed(@Param("dueBefore") Instant dueBefore, @Param("failedAt") Instant failedAt, @Param("error") String error);
+
+    /**
+     * Removes the jobs given up before the given time.
+     *
+     * @param failedAt the time before which the jobs failed
+     * @return the number of removed jobs
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from Job j where j.failedAt < :failedAt")
+    int removeFailedBefore(@Param("failedAt") Instant failedAt);
+}
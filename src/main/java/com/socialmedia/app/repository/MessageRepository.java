@@ -1,11 +1,28 @@
 package com.socialmedia.app.repository;
 
+import com.socialmedia.app.dto.MessageDto;
 import com.socialmedia.app.model.Message;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
 
 /**
  * Repository interface for Message entities.
  * It provides methods for CRUD operations and querying Message objects in the database.
  */
 public interface MessageRepository extends JpaRepository<Message, Long> {
+    /**
+     * Retrieves the messages of a chat as DTOs.
+     *
+     * @param chatId the ID of the chat
+     * @return a list of message DTOs, ordered by creation timestamp and ID
+     */
+    @Query("""
+            select new com.socialmedia.app.dto.MessageDto(m.id, m.text, m.fromUser.username, m.chat.id, m.createdAt)
+            from Message m
+            where m.chat.id = :chatId
+            order by m.createdAt, m.id""")
+    List<MessageDto> findDtosByChatId(@Param("chatId") Long chatId);
 }
@@ -1,33 +1,233 @@
 package com.socialmedia.app.repository;
 
+import com.socialmedia.app.dto.PostDto;
+import com.socialmedia.app.dto.PostSummaryDto;
+import com.socialmedia.app.dto.PostTimelineEntry;
 import com.socialmedia.app.model.Post;
-import com.socialmedia.app.model.User;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
 /**
  * Repository interface for Post entities.
  * It provides methods for CRUD operations and querying Post objects in the database.
+ * Read paths select straight into DTOs without images, which are added from the image IDs of the whole result.
+ * Methods returning entities fetch the author and images in the same query.
  */
 public interface PostRepository extends JpaRepository<Post, Long> {
+    /**
+     * Retrieves the IDs of all posts by the user with the given username.
+     *
+     * @param username the username of the user
+     * @return a list of post IDs, ordered by creation timestamp and ID in descending order
+     */
+    @Query("select p.id from Post p where p.user.username = :username order by p.createdAt desc, p.id desc")
+    List<Long> findIdsByUsername(@Param("username") String username);
+
     /**
      * Retrieves all posts by the user with the given username, ordered by creation timestamp in descending order.
      *
      * @param username the username of the user
      * @return an optional set of posts by the user, ordered by creation timestamp in descending order
      */
+    @EntityGraph(attributePaths = {"user", "images"})
     Optional<Set<Post>> findAllByUser_UsernameOrderByCreatedAtDesc(String username);
 
     /**
-     * Retrieves a page of posts created by the users in the given set, using pagination.
+     * Retrieves a post by its ID together with its author and images.
+     *
+     * @param id the ID of the post
+     * @return an optional post
+     */
+    @Override
+    @EntityGraph(attributePaths = {"user", "images"})
+    Optional<Post> findById(Long id);
+
+    /**
+     * Retrieves a post by its ID as a DTO without images.
+     *
+     * @param id the ID of the post
+     * @return an optional post DTO
+     */
+    @Query("""
+            select new com.socialmedia.app.dto.PostDto(p.id, p.title, p.body, p.createdAt, p.user.username, p.version)
+            from Post p
+            where p.id = :id""")
+    Optional<PostDto> findDtoById(@Param("id") Long id);
+
+    /**
+     * Retrieves the posts with the given IDs as DTOs without images.
+     *
+     * @param ids the IDs of the posts
+     * @return a list of post DTOs in no particular order
+     */
+    @Query("""
+            select new com.socialmedia.app.dto.PostDto(p.id, p.title, p.body, p.createdAt, p.user.username, p.version)
+            from Post p
+            where p.id in :ids""")
+    List<PostDto> findDtosByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Retrieves a slice of summaries of the posts created by the given user.
+     *
+     * @param userId   the ID of the author
+     * @param pageable the pageable object specifying the slice size
+     * @return a slice of post summaries without images, ordered by creation timestamp and ID in descending order
+     */
+    @Query("""
+            select new com.socialmedia.app.dto.PostSummaryDto(p.id, p.title, p.createdAt)
+            from Post p
+            where p.user.id = :userId
+            order by p.createdAt desc, p.id desc""")
+    Slice<PostSummaryDto> findSummariesByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * Retrieves a slice of summaries of the posts created by the given user,
+     * starting after the post with the given creation timestamp and ID.
+     *
+     * @param userId    the ID of the author
+     * @param createdAt the creation timestamp of the last post of the previous slice
+     * @param id        the ID of the last post of the previous slice
+     * @param pageable  the pageable object specifying the slice size
+     * @return a slice of post summaries without images, ordered by creation timestamp and ID in descending order
+     */
+    @Query("""
+            select new com.socialmedia.app.dto.PostSummaryDto(p.id, p.title, p.createdAt)
+            from Post p
+            where p.user.id = :userId
+              and (p.createdAt, p.id) < (:createdAt, :id)
+            order by p.createdAt desc, p.id desc""")
+    Slice<PostSummaryDto> findSummariesByUserIdBefore(@Param("userId") Long userId, @Param("createdAt") Instant createdAt, @Param("id") Long id, Pageable pageable);
+
+    /**
+     * Retrieves the newest timeline entries of the posts created by each of the given users.
+     *
+     * @param userIds the IDs of the authors
+     * @param limit   the maximum number of entries per author
+     * @return a list of timeline entries, at most the given number per author
+     */
+    @Query("""
+            select new com.socialmedia.app.dto.PostTimelineEntry(e.id, e.authorId, e.createdAt)
+            from (select p.id as id, p.user.id as authorId, p.createdAt as createdAt,
+                         row_number() over (partition by p.user.id order by p.createdAt desc, p.id desc) as position
+                  from Post p
+                  where p.user.id in :userIds) e
+            where e.position <= :limit""")
+    List<PostTimelineEntry> findRecentEntries(@Param("userIds") Collection<Long> userIds, @Param("limit") int limit);
+
+    /**
+     * Retrieves a slice of posts created by the users that the given user is following, as DTOs without images.
+     * The following users are joined in the database, so the following set is never loaded,
+     * and unlike a page, a slice is fetched without counting all matching posts.
+     *
+     * @param userId   the ID of the following user
+     * @param pageable the pageable object specifying the slice number, size and sorting
+     * @return a slice of post DTOs
+     */
+    @Query("""
+            select new com.socialmedia.app.dto.PostDto(p.id, p.title, p.body, p.createdAt, p.user.username, p.version)
+            from Post p
+            where p.user in (select f from User u join u.following f where u.id = :userId)""")
+    Slice<PostDto> findFeed(@Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * Retrieves a slice of posts created by the users that the given user is following, as DTOs without images,
+     * starting after the post with the given creation timestamp and ID.
+     *
+     * @param userId    the ID of the following user
+     * @param createdAt the creation timestamp of the last post of the previous slice
+     * @param id        the ID of the last post of the previous slice
+     * @param pageable  the pageable object specifying the slice size
+     * @return a slice of post DTOs, ordered by creation timestamp and ID in descending order
+     */
+    @Query("""
+            select new com.socialmedia.app.dto.PostDto(p.id, p.title, p.body, p.createdAt, p.user.username, p.version)
+            from Post p
+            where p.user in (select f from User u join u.following f where u.id = :userId)
+              and (p.createdAt, p.id) < (:createdAt, :id)
+            order by p.createdAt desc, p.id desc""")
+    Slice<PostDto> findFeedBefore(@Param("userId") Long userId, @Param("createdAt") Instant createdAt, @Param("id") Long id, Pageable pageable);
+
+    /**
+     * Updates the title and body of a post in one statement, if the post belongs to the given user
+     * and still has the given version, and increments the version. A null title or body is left unchanged.
+     *
+     * @param id      the ID of the post
+     * @param userId  the ID of the user editing the post
+     * @param version the version of the post the edit is based on, or null to edit any version
+     * @param title   the new title of the post
+     * @param body    the new body of the post
+     * @return the number of updated posts, 0 if the post doesn't exist, is deleted, belongs to another user or has another version
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+            update Post p
+            set p.title = coalesce(:title, p.title), p.body = coalesce(:body, p.body), p.version = p.version + 1
+            where p.id = :id and p.user.id = :userId and (:version is null or p.version = :version) and p.deletedAt is null""")
+    int updateIfCurrent(@Param("id") Long id, @Param("userId") Long userId, @Param("version") Long version,
+                        @Param("title") String title, @Param("body") String body);
+
+    /**
+     * Retrieves the ID of the author of a post that is not deleted.
+     *
+     * @param id the ID of the post
+     * @return an optional ID of the author
+     */
+    @Query("select p.user.id from Post p where p.id = :id and p.deletedAt is null")
+    Optional<Long> findAuthorIdById(@Param("id") Long id);
+
+    /**
+     * Marks a post as deleted, if it belongs to the given user and is not deleted yet.
+     *
+     * @param id        the ID of the post
+     * @param userId    the ID of the user deleting the post
+     * @param deletedAt the deletion timestamp
+     * @return the number of marked posts, 0 if the post doesn't exist or belongs to another user
+     */
+    @Transactional
+    @Modifying
+    @Query("update Post p set p.deletedAt = :deletedAt where p.id = :id and p.user.id = :userId and p.deletedAt is null")
+    int markDeleted(@Param("id") Long id, @Param("userId") Long userId, @Param("deletedAt") Instant deletedAt);
+
+    /**
+     * Retrieves the IDs of posts that are marked as deleted, oldest deletions first, and locks them until the transaction ends.
+     * Posts locked by other transactions are skipped, so instances purging at the same time purge different posts.
+     * Native, because deleted posts are hidden from queries on the entity.
+     *
+     * @param limit the maximum number of IDs
+     * @return a list of post IDs
+     */
+    @Query(value = "select id from posts where deleted_at is not null order by deleted_at, id limit :limit for update skip locked", nativeQuery = true)
+    List<Long> findDeletedIds(@Param("limit") int limit);
+
+    /**
+     * Counts the posts that are marked as deleted and not purged yet.
+     *
+     * @return the number of deleted posts
+     */
+    @Query(value = "select count(*) from posts where deleted_at is not null", nativeQuery = true)
+    long countDeleted();
+
+    /**
+     * Removes deleted posts from the database.
      *
-     * @param users    the set of users
-     * @param pageable the pageable object specifying the page number and size
-     * @return a page of posts created by the users
+     * @param ids the IDs of the posts
+     * @return the number of removed posts
      */
-    Page<Post> findAllByUserIn(Set<User> users, Pageable pageable);
+    @Transactional
+    @Modifying
+    @Query(value = "delete from posts where id in (:ids) and deleted_at is not null", nativeQuery = true)
+    int purgeByIds(@Param("ids") Collection<Long> ids);
 }
@@ -1,9 +1,16 @@
 package com.socialmedia.app.repository;
 
+import com.socialmedia.app.dto.UserDto;
 import com.socialmedia.app.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -19,4 +26,134 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * @return an optional user object
      */
     Optional<User> findByUsername(String username);
+
+    /**
+     * Retrieves the ID of a user by their username, without loading the user.
+     *
+     * @param username the username of the user
+     * @return an optional user ID
+     */
+    @Query("select u.id from User u where u.username = :username")
+    Optional<Long> findIdByUsername(@Param("username") String username);
+
+    /**
+     * Retrieves the IDs of the users following the user with the given ID.
+     *
+     * @param id the ID of the user
+     * @return a list of follower IDs
+     */
+    @Query("select f.id from User u join u.followers f where u.id = :id")
+    List<Long> findFollowerIdsById(@Param("id") Long id);
+
+    /**
+     * Retrieves which of the given users follow the user with the given ID.
+     *
+     * @param id          the ID of the user
+     * @param followerIds the IDs of the users that are checked
+     * @return a list of follower IDs
+     */
+    @Query("select f.id from User u join u.followers f where u.id = :id and f.id in :followerIds")
+    List<Long> findFollowerIdsByIdAndFollowerIdIn(@Param("id") Long id, @Param("followerIds") Collection<Long> followerIds);
+
+    /**
+     * Retrieves the stored number of followers of the user with the given ID, without counting them.
+     *
+     * @param id the ID of the user
+     * @return the number of followers, 0 if the user doesn't exist
+     */
+    @Query("select coalesce(sum(u.followerCount), 0) from User u where u.id = :id")
+    long findFollowerCountById(@Param("id") Long id);
+
+    /**
+     * Adds to the stored number of followers of the user with the given ID in one statement.
+     *
+     * @param id    the ID of the user
+     * @param delta the number of followers gained, negative if followers were lost
+     * @return the number of updated users
+     */
+    @Transactional
+    @Modifying
+    @Query("update User u set u.followerCount = u.followerCount + :delta where u.id = :id")
+    int addFollowerCount(@Param("id") Long id, @Param("delta") long delta);
+
+    /**
+     * Makes the user with the given follower ID follow the user with the given following ID in one statement.
+     * Native, so that a follow racing with another one adds no row instead of failing.
+     *
+     * @param followerId  the ID of the following user
+     * @param followingId the ID of the followed user
+     * @return the number of added follows, 0 if the user was already following
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "insert into users_following (followers_id, following_id) values (:followerId, :followingId) on conflict do nothing",
+            nativeQuery = true)
+    int addFollowing(@Param("followerId") Long followerId, @Param("followingId") Long followingId);
+
+    /**
+     * Makes the user with the given follower ID stop following the user with the given following ID in one statement.
+     *
+     * @param followerId  the ID of the following user
+     * @param followingId the ID of the followed user
+     * @return the number of removed follows, 0 if the user was not following
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "delete from users_following where followers_id = :followerId and following_id = :followingId", nativeQuery = true)
+    int removeFollowing(@Param("followerId") Long followerId, @Param("followingId") Long followingId);
+
+    /**
+     * Retrieves the IDs of the users that the user with the given ID is following.
+     *
+     * @param id the ID of the following user
+     * @return a list of user IDs
+     */
+    @Query("select f.id from User u join u.following f where u.id = :id")
+    List<Long> findFollowingIdsById(@Param("id") Long id);
+
+    /**
+     * Retrieves the IDs of the users that the user with the given ID is following and that have at least the given number of followers.
+     *
+     * @param id            the ID of the following user
+     * @param followerCount the minimum number of followers
+     * @return a list of user IDs
+     */
+    @Query("select f.id from User u join u.following f where u.id = :id and f.followerCount >= :followerCount")
+    List<Long> findFollowingIdsByIdAndFollowerCountAtLeast(@Param("id") Long id, @Param("followerCount") long followerCount);
+
+    /**
+     * Retrieves a user by their username as a DTO without posts and relations.
+     *
+     * @param username the username of the user
+     * @return an optional user DTO
+     */
+    @Query("select new com.socialmedia.app.dto.UserDto(u.username, u.email) from User u where u.username = :username")
+    Optional<UserDto> findDtoByUsername(@Param("username") String username);
+
+    /**
+     * Retrieves the usernames of the users that the user with the given username is following.
+     *
+     * @param username the username of the following user
+     * @return a list of usernames
+     */
+    @Query("select f.username from User u join u.following f where u.username = :username")
+    List<String> findFollowingUsernamesByUsername(@Param("username") String username);
+
+    /**
+     * Retrieves the usernames of the users following the user with the given username.
+     *
+     * @param username the username of the followed user
+     * @return a list of usernames
+     */
+    @Query("select f.username from User u join u.followers f where u.username = :username")
+    List<String> findFollowerUsernamesByUsername(@Param("username") String username);
+
+    /**
+     * Retrieves the usernames of the friends of the user with the given username.
+     *
+     * @param username the username of the user
+     * @return a list of usernames
+     */
+    @Query("select f.username from User u join u.friends f where u.username = :username")
+    List<String> findFriendUsernamesByUsername(@Param("username") String username);
 }
@@ -6,12 +6,18 @@ import com.socialmedia.app.model.Message;
 import com.socialmedia.app.repository.ChatRepository;
 import com.socialmedia.app.repository.MessageRepository;
 import com.socialmedia.app.repository.UserRepository;
-import com.socialmedia.app.util.ChatConvertor;
+import com.socialmedia.app.util.SingleFlight;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.security.Principal;
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
 
 /**
  * Service class for managing chat functionality.
@@ -21,35 +27,55 @@ public class ChatService {
     private final ChatRepository chatRepository;
     private final MessageRepository messageRepository;
     private final UserRepository userRepository;
-    private final ChatConvertor chatConvertor;
+    private final SingleFlight<List<String>, ChatDto> chatLoads;
 
-    public ChatService(ChatRepository chatRepository, MessageRepository messageRepository, UserRepository userRepository, ChatConvertor chatConvertor) {
+    public ChatService(ChatRepository chatRepository, MessageRepository messageRepository, UserRepository userRepository,
+                       @Value("${reads.coalescing-timeout:5s}") Duration coalescingTimeout) {
         this.chatRepository = chatRepository;
         this.messageRepository = messageRepository;
         this.userRepository = userRepository;
-        this.chatConvertor = chatConvertor;
+        this.chatLoads = new SingleFlight<>(coalescingTimeout);
     }
 
     /**
      * Retrieves the chat with a specific user.
+     * The chat and its messages are selected straight into DTOs, without loading the entities.
+     * Concurrent reads of the same chat by either of its users share one load.
      *
      * @param username  the username of the other user in the chat
      * @param principal the authenticated user principal
      * @return the chat DTO
-     * @throws ResponseStatusException if the chat is not found
+     * @throws ResponseStatusException if the chat is not found or a concurrent load of it takes too long
      */
     public ChatDto getChatWithUser(String username, Principal principal) {
-        var chat = chatRepository
-                .findByUser1_UsernameAndUser2_Username(principal.getName(), username)
-                .or(() -> chatRepository.findByUser1_UsernameAndUser2_Username(username, principal.getName()));
+        var users = Stream.of(principal.getName(), username).sorted().toList();
 
-        if(chat.isPresent()) {
-            return chatConvertor.convertToDto(chat.get());
-        } else {
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Chat with given user not found!");
+        try {
+            return chatLoads.execute(users, () -> loadChat(principal.getName(), username));
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Timed out waiting for a concurrent request!");
         }
     }
 
+    /**
+     * Loads the chat between two users from the database.
+     *
+     * @param user     the username of one user in the chat
+     * @param username the username of the other user in the chat
+     * @return the chat DTO
+     * @throws ResponseStatusException if the chat is not found
+     */
+    private ChatDto loadChat(String user, String username) {
+        var chat = chatRepository
+                .findDtoByUsernames(user, username)
+                .or(() -> chatRepository.findDtoByUsernames(username, user))
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Chat with given user not found!"));
+
+        chat.setMessage(new LinkedHashSet<>(messageRepository.findDtosByChatId(chat.getId())));
+
+        return chat;
+    }
+
     /**
      * Sends a message to a specific user.
      *
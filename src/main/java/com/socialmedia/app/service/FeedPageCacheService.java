@@ -0,0 +1,168 @@
+package com.socialmedia.app.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.socialmedia.app.dto.PostDto;
+import com.socialmedia.app.event.FollowingChangedEvent;
+import com.socialmedia.app.event.PostCreatedEvent;
+import com.socialmedia.app.event.PostDeletedEvent;
+import com.socialmedia.app.event.PostUpdatedEvent;
+import com.socialmedia.app.event.PostsCreatedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Service class for caching the rendered first pages of the users' feeds.
+ * Cached pages are dropped as soon as a followed author creates, edits or deletes a post,
+ * or the user follows or unfollows someone, and expire after the configured time in any case.
+ * The followers of pulled authors are not looked up, instead every cached feed records the pulled authors it follows,
+ * and the feeds recording the author are dropped. Feeds cached before a followed author became pulled keep their pages
+ * on the author's changes until they expire.
+ */
+@Service
+public class FeedPageCacheService {
+    private final FollowerService followerService;
+    private final int pages;
+    private final Cache<Long, FeedPages> feedPages;
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * Constructs a FeedPageCacheService with the provided service, cache limits and meter registry.
+     *
+     * @param followerService the service looking up the followers of authors
+     * @param pages           the number of first pages of a feed that are cached
+     * @param maxUsers        the maximum number of users whose pages are kept in memory
+     * @param ttl             the time after which cached pages expire
+     * @param meterRegistry   the registry the cache hit and miss counters are registered with
+     */
+    public FeedPageCacheService(FollowerService followerService,
+                                @Value("${feed.page-cache.pages:3}") int pages,
+                                @Value("${feed.page-cache.max-users:100000}") long maxUsers,
+                                @Value("${feed.page-cache.ttl:60s}") Duration ttl,
+                                MeterRegistry meterRegistry) {
+        this.followerService = followerService;
+        this.pages = pages;
+        this.feedPages = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(ttl)
+                .build();
+        this.hits = meterRegistry.counter("feed.page.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("feed.page.cache.requests", "result", "miss");
+        meterRegistry.gaugeMapSize("feed.page.cache.users", List.of(), feedPages.asMap());
+    }
+
+    /**
+     * Retrieves a page of the user's feed from the cache, rendering and caching it if it is not cached yet.
+     * Pages past the configured number of first pages are always rendered.
+     *
+     * @param userId   the ID of the user
+     * @param pageable the page of the feed
+     * @param loader   the function rendering the page
+     * @return a list of post DTOs
+     */
+    public List<PostDto> getPage(Long userId, PageRequest pageable, Supplier<List<PostDto>> loader) {
+        if (pageable.getPageNumber() >= pages)
+            return loader.get();
+
+        // The map is taken before the page is rendered, so a page rendered while the cache is invalidated
+        // ends up in the dropped map instead of the cache
+        var userPages = feedPages.get(userId, id -> new FeedPages(
+                followerService.getPulledFollowingIds(id).stream().mapToLong(Long::longValue).sorted().toArray(),
+                new ConcurrentHashMap<>())).pages();
+        var page = userPages.get(pageable);
+        if (page != null) {
+            hits.increment();
+            return page;
+        }
+
+        misses.increment();
+        page = loader.get();
+        if (userPages.size() < pages)
+            userPages.put(pageable, page);
+
+        return page;
+    }
+
+    /**
+     * Drops the cached pages of the author's followers when a post is created.
+     *
+     * @param event the event describing the created post
+     */
+    @EventListener
+    public void onPostCreated(PostCreatedEvent event) {
+        invalidateFollowers(event, event.authorId());
+    }
+
+    /**
+     * Drops the cached pages of the author's followers when several posts are created at once.
+     *
+     * @param event the event describing the created posts
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostsCreated(PostsCreatedEvent event) {
+        invalidateFollowers(event, event.authorId());
+    }
+
+    /**
+     * Drops the cached pages of the author's followers when a post is edited.
+     *
+     * @param event the event describing the updated post
+     */
+    @EventListener
+    public void onPostUpdated(PostUpdatedEvent event) {
+        invalidateFollowers(event, event.authorId());
+    }
+
+    /**
+     * Drops the cached pages of the author's followers when a post is deleted.
+     *
+     * @param event the event describing the deleted post
+     */
+    @EventListener
+    public void onPostDeleted(PostDeletedEvent event) {
+        invalidateFollowers(event, event.authorId());
+    }
+
+    /**
+     * Drops the cached pages of a user whose following set has changed, once the change is committed.
+     *
+     * @param event the event describing the changed following set
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFollowingChanged(FollowingChangedEvent event) {
+        feedPages.invalidate(event.followerId());
+    }
+
+    private void invalidateFollowers(Object event, Long authorId) {
+        if (feedPages.estimatedSize() == 0)
+            return;
+
+        var followers = followerService.getFollowers(event, authorId);
+        if (followers.pulled())
+            feedPages.asMap().values().removeIf(userPages -> Arrays.binarySearch(userPages.pulledAuthorIds(), authorId) >= 0);
+        else
+            feedPages.invalidateAll(followers.ids());
+    }
+
+    /**
+     * Cached first pages of a user's feed together with the followed authors that are pulled.
+     *
+     * @param pulledAuthorIds the sorted IDs of the followed authors whose posts are pulled
+     * @param pages           the cached pages
+     */
+    private record FeedPages(long[] pulledAuthorIds, Map<PageRequest, List<PostDto>> pages) {
+    }
+}
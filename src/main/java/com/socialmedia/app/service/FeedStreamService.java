@@ -0,0 +1,305 @@
+package com.socialmedia.app.service;
+
+import com.socialmedia.app.dto.PostDto;
+import com.socialmedia.app.event.PostCreatedEvent;
+import com.socialmedia.app.event.PostsCreatedEvent;
+import com.socialmedia.app.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+/**
+ * Service class for streaming the home feed of users over long-lived connections.
+ * A stream starts with the newest page of the feed and then receives every new post of the followed users
+ * as it is created, written as one JSON document per line (NDJSON), so clients don't have to poll the feed.
+ * Streams are served asynchronously and don't hold a request thread while they are open.
+ * New posts are queued per stream and written by a small pool of sender threads, each stream by at most one of them at a time,
+ * so a client that reads slowly only holds up its own stream. A stream whose queue is full is closed instead of buffering
+ * without bound, and the client reconnects to the newest page of the feed.
+ * Posts created while the initial page is read are queued until it is written, and skipped if the page already contains them.
+ * Idle streams are sent an empty line every heartbeat interval, so proxies don't close them before the timeout;
+ * clients skip empty lines.
+ */
+@Service
+public class FeedStreamService {
+    private final PostService postService;
+    private final UserRepository userRepository;
+    private final FollowerService followerService;
+    private final long timeout;
+    private final int queueCapacity;
+    private final Map<Long, Set<FeedStream>> streams = new ConcurrentHashMap<>();
+    private final ExecutorService senders;
+
+    /**
+     * Constructs a FeedStreamService with the provided services and stream timeout.
+     *
+     * @param postService     the service providing the feed and posts
+     * @param userRepository  the repository for managing user data
+     * @param followerService the service looking up the followers of authors
+     * @param timeout         the time after which an open stream is closed, so that clients reconnect
+     * @param queueCapacity   the number of posts queued for a stream before it is closed as too slow
+     * @param senderThreads   the number of threads writing the queued posts
+     */
+    public FeedStreamService(PostService postService,
+                             UserRepository userRepository,
+                             FollowerService followerService,
+                             @Value("${feed.stream.timeout:30m}") Duration timeout,
+                             @Value("${feed.stream.queue-capacity:100}") int queueCapacity,
+                             @Value("${feed.stream.sender-threads:4}") int senderThreads) {
+        this.postService = postService;
+        this.userRepository = userRepository;
+        this.followerService = followerService;
+        this.timeout = timeout.toMillis();
+        this.queueCapacity = queueCapacity;
+        this.senders = Executors.newFixedThreadPool(senderThreads);
+    }
+
+    /**
+     * Opens a feed stream for the authenticated user and writes the newest page of the feed to it.
+     *
+     * @param principal the authenticated user principal
+     * @param size      the number of posts in the initial page
+     * @return the emitter writing the stream
+     * @throws ResponseStatusException if the user is not found
+     */
+    public ResponseBodyEmitter openStream(Principal principal, int size) {
+        var userId = userRepository
+                .findIdByUsername(principal.getName())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User with given username not found!"));
+
+        var emitter = new ResponseBodyEmitter(timeout);
+        var stream = new FeedStream(userId, emitter);
+        emitter.onCompletion(() -> unregister(stream));
+        emitter.onTimeout(() -> unregister(stream));
+        emitter.onError(e -> unregister(stream));
+
+        // Registered before the initial page is read, so no post created in between is missed
+        streams.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(stream);
+        try {
+            stream.start(postService.getUserFeed(principal, null, size).content());
+        } catch (RuntimeException e) {
+            unregister(stream);
+            throw e;
+        }
+
+        return emitter;
+    }
+
+    /**
+     * Writes a new post to the open streams of the author's followers.
+     * The post is queued for the sender threads, so a slow client doesn't hold up the creation of the post.
+     *
+     * @param event the event describing the created post
+     */
+    @EventListener
+    public void onPostCreated(PostCreatedEvent event) {
+        sendPosts(event, event.authorId(), List.of(event));
+    }
+
+    /**
+     * Writes several new posts of the same author to the open streams of the author's followers.
+     *
+     * @param event the event describing the created posts
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostsCreated(PostsCreatedEvent event) {
+        sendPosts(event, event.authorId(), event.posts());
+    }
+
+    /**
+     * Sends a heartbeat to all open streams, written by the sender threads once the queued posts are written.
+     */
+    @Scheduled(fixedRateString = "${feed.stream.heartbeat-interval:PT15S}")
+    public void heartbeat() {
+        streams.values().forEach(userStreams -> userStreams.forEach(FeedStream::heartbeat));
+    }
+
+    /**
+     * Completes all open streams and stops the sender threads when the application shuts down.
+     */
+    @PreDestroy
+    public void close() {
+        senders.shutdownNow();
+        streams.values().forEach(userStreams -> userStreams.forEach(stream -> stream.emitter.complete()));
+    }
+
+    private void sendPosts(Object event, Long authorId, List<PostCreatedEvent> created) {
+        if (streams.isEmpty())
+            return;
+
+        var followers = followerService.getFollowers(event, authorId);
+        // Pulled authors have too many followers to load, so the users with open streams are checked instead
+        var followerIds = followers.pulled()
+                ? followerService.getFollowersAmong(authorId, List.copyOf(streams.keySet()))
+                : followers.ids();
+        if (followerIds.stream().noneMatch(streams::containsKey))
+            return;
+
+        var posts = created.size() == 1
+                ? List.of(postService.getPostById(created.get(0).postId()))
+                : postService.getPostsByIds(created.stream().mapToLong(PostCreatedEvent::postId).toArray());
+        for (var followerId : followerIds) {
+            var userStreams = streams.get(followerId);
+            if (userStreams != null)
+                userStreams.forEach(stream -> stream.enqueue(posts));
+        }
+    }
+
+    private void unregister(FeedStream stream) {
+        streams.computeIfPresent(stream.userId, (id, userStreams) -> {
+            userStreams.remove(stream);
+            return userStreams.isEmpty() ? null : userStreams;
+        });
+    }
+
+    /**
+     * An open stream with the posts waiting to be written to it.
+     */
+    private final class FeedStream {
+        private final Long userId;
+        private final ResponseBodyEmitter emitter;
+        // Guarded by the stream, together with the flags
+        private final Queue<PostDto> queue = new ArrayDeque<>();
+        // The IDs of the posts of the initial page, set once it is written, new posts queued meanwhile may be among them
+        private Set<Long> initialPostIds;
+        // Set while the initial page is written or a sender thread is writing the queue, so the stream is written by one thread at a time
+        private boolean draining = true;
+        // Set once the queue overflowed, the stream is completed by the sender thread after its current write
+        private boolean closed;
+        // Set when a heartbeat is due, it is written once the queue is empty
+        private boolean heartbeat;
+
+        FeedStream(Long userId, ResponseBodyEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        /**
+         * Writes the initial page on the request thread, before the emitter is returned, so the writes are buffered
+         * by the emitter and never block. The posts queued meanwhile are handed to a sender thread afterwards.
+         *
+         * @param posts the posts of the initial page
+         */
+        void start(List<PostDto> posts) {
+            posts.forEach(this::send);
+            synchronized (this) {
+                initialPostIds = posts.stream().map(PostDto::getId).collect(Collectors.toSet());
+                if (queue.isEmpty() && !closed) {
+                    draining = false;
+                    return;
+                }
+            }
+            schedule();
+        }
+
+        void heartbeat() {
+            synchronized (this) {
+                if (closed)
+                    return;
+                heartbeat = true;
+                if (draining)
+                    return;
+                draining = true;
+            }
+            schedule();
+        }
+
+        void enqueue(List<PostDto> posts) {
+            synchronized (this) {
+                if (closed)
+                    return;
+                if (queue.size() + posts.size() > queueCapacity) {
+                    // Completing the emitter here would wait for the write that is stuck, so it is left to the sender
+                    closed = true;
+                    queue.clear();
+                    unregister(this);
+                    if (draining)
+                        return;
+                } else {
+                    queue.addAll(posts);
+                    if (draining)
+                        return;
+                }
+                draining = true;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            try {
+                senders.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // Shutting down, the stream is completed by close
+            }
+        }
+
+        private void drain() {
+            boolean complete;
+            while (true) {
+                PostDto post;
+                boolean beat = false;
+                synchronized (this) {
+                    post = queue.poll();
+                    if (post == null && heartbeat) {
+                        heartbeat = false;
+                        beat = true;
+                    } else if (post == null) {
+                        draining = false;
+                        complete = closed;
+                        break;
+                    }
+                }
+                if (beat)
+                    sendHeartbeat();
+                else if (!initialPostIds.contains(post.getId()))
+                    send(post);
+            }
+            if (complete)
+                emitter.complete();
+        }
+
+        private void sendHeartbeat() {
+            try {
+                synchronized (emitter) {
+                    emitter.send("\n", MediaType.TEXT_PLAIN);
+                }
+            } catch (IOException | IllegalStateException e) {
+                unregister(this);
+            }
+        }
+
+        void send(PostDto post) {
+            try {
+                // Posts are written from the request and the sender threads, the lock keeps each line in one piece
+                synchronized (emitter) {
+                    emitter.send(post, MediaType.APPLICATION_JSON);
+                    emitter.send("\n", MediaType.TEXT_PLAIN);
+                }
+            } catch (IOException | IllegalStateException e) {
+                // The client has gone away, the emitter was completed by the failed write
+                unregister(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.socialmedia.app.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.socialmedia.app.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Service class for looking up the followers of authors when their posts change.
+ * Every listener of a post event needs the author's followers, so the lookup is kept with the event
+ * and shared by all of its listeners instead of being repeated by each of them.
+ * The followers of authors with at least the configured number of followers are not loaded at all,
+ * as a single post would load millions of IDs. Such authors are pulled: their posts are read when feeds are read,
+ * and the listeners find the affected followers among the feeds they keep in memory instead.
+ */
+@Service
+public class FollowerService {
+    private final UserRepository userRepository;
+    private final int followerThreshold;
+    // Weak keys compare the events by identity, and an entry is dropped once its event is no longer referenced
+    private final Cache<Object, Followers> followersByEvent = Caffeine.newBuilder()
+            .weakKeys()
+            .maximumSize(256)
+            .expireAfterWrite(Duration.ofSeconds(10))
+            .build();
+
+    /**
+     * Constructs a FollowerService with the provided repository and follower threshold.
+     *
+     * @param userRepository    the repository for managing user data
+     * @param followerThreshold the number of followers from which the posts of an author are pulled instead of pushed
+     */
+    public FollowerService(UserRepository userRepository,
+                           @Value("${feed.fanout.follower-threshold:10000}") int followerThreshold) {
+        this.userRepository = userRepository;
+        this.followerThreshold = followerThreshold;
+    }
+
+    /**
+     * Retrieves the followers of the author of an event, looking them up once however many listeners of the event ask for them.
+     *
+     * @param event    the event the followers are looked up for
+     * @param authorId the ID of the author
+     * @return the followers of the author, without their IDs if the author is pulled
+     */
+    public Followers getFollowers(Object event, Long authorId) {
+        return followersByEvent.get(event, e -> userRepository.findFollowerCountById(authorId) >= followerThreshold
+                ? new Followers(true, List.of())
+                : new Followers(false, userRepository.findFollowerIdsById(authorId)));
+    }
+
+    /**
+     * Retrieves which of the given users follow an author, without loading all of the author's followers.
+     *
+     * @param authorId the ID of the author
+     * @param userIds  the IDs of the users
+     * @return a list of the IDs of the users following the author
+     */
+    public List<Long> getFollowersAmong(Long authorId, Collection<Long> userIds) {
+        if (userIds.isEmpty())
+            return List.of();
+
+        return userRepository.findFollowerIdsByIdAndFollowerIdIn(authorId, userIds);
+    }
+
+    /**
+     * Retrieves the followed authors of a user whose posts are pulled instead of pushed.
+     *
+     * @param userId the ID of the user
+     * @return a list of author IDs
+     */
+    public List<Long> getPulledFollowingIds(Long userId) {
+        return userRepository.findFollowingIdsByIdAndFollowerCountAtLeast(userId, followerThreshold);
+    }
+
+    /**
+     * Followers of an author.
+     *
+     * @param pulled whether the author has too many followers to look them up, the IDs are empty then
+     * @param ids    the IDs of the followers
+     */
+    public record Followers(boolean pulled, List<Long> ids) {
+    }
+}
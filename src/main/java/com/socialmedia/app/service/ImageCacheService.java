@@ -0,0 +1,158 @@
+package com.socialmedia.app.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.socialmedia.app.event.PostsPurgedEvent;
+import com.socialmedia.app.storage.ByteBufferResource;
+import com.socialmedia.app.storage.ImageMetadata;
+import com.socialmedia.app.util.ImageSize;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.time.Duration;
+import java.util.HashSet;
+
+/**
+ * Service class for caching the most requested image files in memory, outside the Java heap.
+ * Files are kept as direct buffers together with what the response needs, so a cached image is served
+ * without looking it up in the database or reading the storage. Only immutable files up to a size are cached.
+ * A file is only copied into the cache when it is requested again while its first request is still remembered,
+ * so files requested once never cost a copy. Until then it is served from the storage, where local files are sent with {@code sendfile}.
+ * Files are evicted by frequency and recency once their total size reaches the limit, dropped as soon as their post is purged,
+ * and expire after the configured time in any case. The memory of evicted files is released when their buffers are collected.
+ * The cache is published as the {@code cache.*} metrics with {@code cache=images},
+ * with its hit ratio and size in bytes as the {@code images.cache.hit.ratio} and {@code images.cache.resident.bytes} gauges.
+ */
+@Service
+public class ImageCacheService {
+    private final Cache<ImageKey, CachedImage> images;
+    // Files requested once and not cached yet, without their content
+    private final Cache<ImageKey, Boolean> candidates;
+    private final long maxImageSize;
+
+    /**
+     * Constructs an ImageCacheService with the provided cache limits and meter registry.
+     *
+     * @param maxSize       the maximum total size of the cached files
+     * @param maxImageSize  the maximum size of a cached file
+     * @param maxCandidates the maximum number of files requested once that are remembered
+     * @param ttl           the time after which cached files expire and files requested once are forgotten
+     * @param meterRegistry the registry the cache metrics are registered with
+     */
+    public ImageCacheService(@Value("${posts.images.cache.max-size:64MB}") DataSize maxSize,
+                             @Value("${posts.images.cache.max-image-size:1MB}") DataSize maxImageSize,
+                             @Value("${posts.images.cache.max-candidates:100000}") long maxCandidates,
+                             @Value("${posts.images.cache.ttl:10m}") Duration ttl,
+                             MeterRegistry meterRegistry) {
+        this.maxImageSize = maxImageSize.toBytes();
+        this.candidates = Caffeine.newBuilder()
+                .maximumSize(maxCandidates)
+                .expireAfterWrite(ttl)
+                .build();
+        this.images = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((ImageKey key, CachedImage image) -> image.content().remaining())
+                .expireAfterWrite(ttl)
+                // Evicts on the calling thread, so the resident size never runs ahead of the limit
+                .executor(Runnable::run)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, images, "images");
+        meterRegistry.gauge("images.cache.hit.ratio", images, cache -> cache.stats().hitRate());
+        meterRegistry.gauge("images.cache.resident.bytes", images,
+                cache -> cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L));
+    }
+
+    /**
+     * Retrieves a cached image file.
+     *
+     * @param id   the ID of the image
+     * @param size the size of the image file
+     * @return the cached image file, or null if it is not cached
+     */
+    public CachedImage getImage(Long id, ImageSize size) {
+        return images.getIfPresent(new ImageKey(id, size));
+    }
+
+    /**
+     * Caches an image file on its second request, copying its content out of the Java heap.
+     * The first request of a file is only remembered, and files larger than the maximum size of a cached file are left out.
+     *
+     * @param id        the ID of the image
+     * @param size      the size of the image file
+     * @param postId    the ID of the post the image belongs to
+     * @param mediaType the media type of the image
+     * @param location  the location of the image file
+     * @param metadata  the size and modification time of the image file
+     * @param resource  the resource reading the image file
+     * @return the cached image file, or null if the file is requested for the first time or too large to be cached
+     * @throws IOException if the file can't be read
+     */
+    public CachedImage putImage(Long id, ImageSize size, Long postId, String mediaType, String location,
+                                ImageMetadata metadata, Resource resource) throws IOException {
+        if (metadata.size() > maxImageSize)
+            return null;
+
+        var key = new ImageKey(id, size);
+        if (candidates.asMap().remove(key) == null) {
+            candidates.put(key, Boolean.TRUE);
+            return null;
+        }
+
+        // Local files are read straight into the buffer through their channel, without a copy on the heap
+        var content = ByteBuffer.allocateDirect((int) metadata.size());
+        try (ReadableByteChannel channel = resource.readableChannel()) {
+            while (content.hasRemaining()) {
+                if (channel.read(content) < 0)
+                    throw new EOFException("Image file " + location + " is shorter than " + metadata.size() + " bytes");
+            }
+        }
+
+        var image = new CachedImage(postId, mediaType, location, metadata, content.flip().asReadOnlyBuffer());
+        images.put(key, image);
+        return image;
+    }
+
+    /**
+     * Drops the cached image files of purged posts.
+     *
+     * @param event the event describing the purged posts
+     */
+    @EventListener
+    public void onPostsPurged(PostsPurgedEvent event) {
+        var postIds = new HashSet<>(event.postIds());
+        images.asMap().values().removeIf(image -> postIds.contains(image.postId()));
+    }
+
+    /**
+     * An image file held in the cache.
+     *
+     * @param postId    the ID of the post the image belongs to
+     * @param mediaType the media type of the image
+     * @param location  the location of the image file
+     * @param metadata  the size and modification time of the image file
+     * @param content   the read-only off-heap buffer holding the content of the file
+     */
+    public record CachedImage(Long postId, String mediaType, String location, ImageMetadata metadata, ByteBuffer content) {
+        /**
+         * Returns the content of the file as a resource to be served.
+         *
+         * @return the resource reading the cached content
+         */
+        public Resource resource() {
+            return new ByteBufferResource(content, "Cached image [" + location + "]");
+        }
+    }
+
+    private record ImageKey(Long id, ImageSize size) {
+    }
+}
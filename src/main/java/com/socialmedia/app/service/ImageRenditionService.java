@@ -0,0 +1,147 @@
+package com.socialmedia.app.service;
+
+import com.socialmedia.app.event.ImagesAddedEvent;
+import com.socialmedia.app.storage.ImageStorage;
+import com.socialmedia.app.util.ImageSize;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Service class for generating scaled-down renditions of uploaded images in the background.
+ * Every image larger than a rendition size gets a rendition of that size, saved next to the original file,
+ * until then downloads of that size are served the original.
+ * Renditions are generated by jobs owned by the instance that stored the image, as its storage has the file,
+ * so they survive restarts and are retried when the files can't be read or written.
+ * Images ImageIO can't read, e.g. WebP, only have the original.
+ * Generated and failed renditions are published as the {@code posts.images.renditions*} metrics.
+ */
+@Service
+public class ImageRenditionService {
+    // Renditions are scaled from the previous, larger one, so the original is decoded only once
+    private static final List<ImageSize> RENDITIONS = List.of(ImageSize.LARGE, ImageSize.MEDIUM, ImageSize.THUMBNAIL);
+    private static final String RENDITION_JOB = "images.rendition";
+    // Downloads are served the larger original until the renditions exist, so they run before cleanups
+    private static final int RENDITION_PRIORITY = 10;
+
+    private final ImageStorage imageStorage;
+    private final JobService jobService;
+    private final Counter renditions;
+    private final Counter failures;
+
+    /**
+     * Constructs an ImageRenditionService with the provided image storage, job service and meter registry,
+     * and registers the handler of the rendition jobs.
+     *
+     * @param imageStorage    the storage the image files are kept in
+     * @param jobService      the service running the rendition jobs
+     * @param meterRegistry   the registry the rendition metrics are registered with
+     */
+    public ImageRenditionService(ImageStorage imageStorage,
+                                 JobService jobService,
+                                 MeterRegistry meterRegistry) {
+        this.imageStorage = imageStorage;
+        this.jobService = jobService;
+        this.renditions = meterRegistry.counter("posts.images.renditions");
+        this.failures = meterRegistry.counter("posts.images.renditions.failed");
+        jobService.register(RENDITION_JOB, this::render);
+    }
+
+    /**
+     * Queues the renditions of images added to a post.
+     *
+     * @param event the event describing the added images
+     */
+    @EventListener
+    public void onImagesAdded(ImagesAddedEvent event) {
+        jobService.enqueueLocal(RENDITION_JOB, event.locations(), RENDITION_PRIORITY);
+    }
+
+    /**
+     * Generates the renditions of an image.
+     *
+     * @param location the location of the original image file
+     * @throws IOException if the image file can't be read or a rendition can't be written
+     */
+    void render(String location) throws IOException {
+        try (ImageInputStream in = open(location)) {
+            var readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext())
+                return;
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int originalDimension = Math.max(reader.getWidth(0), reader.getHeight(0));
+                if (originalDimension <= RENDITIONS.get(RENDITIONS.size() - 1).getMaxDimension())
+                    return;
+
+                // Decoding every n-th pixel only keeps large originals from being decoded at full size
+                var param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, originalDimension / RENDITIONS.get(0).getMaxDimension());
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                BufferedImage image = reader.read(0, param);
+
+                String format = location.substring(location.lastIndexOf('.') + 1);
+                for (var size : RENDITIONS) {
+                    if (originalDimension <= size.getMaxDimension())
+                        continue;
+                    image = scale(image, size.getMaxDimension(), !format.equals("jpeg"));
+                    write(image, format, size.location(location));
+                    renditions.increment();
+                }
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException | RuntimeException e) {
+            failures.increment();
+            throw e;
+        }
+    }
+
+    private ImageInputStream open(String location) throws IOException {
+        // Content uploaded again shares the renditions generated for it before, the thumbnail is always generated last
+        if (imageStorage.stat(ImageSize.THUMBNAIL.location(location)) != null)
+            return null;
+
+        // Local files are read in place, so the reader can seek instead of buffering what it has read
+        var resource = imageStorage.read(location);
+        return ImageIO.createImageInputStream(resource.isFile() ? resource.getFile() : resource.getInputStream());
+    }
+
+    private void write(BufferedImage image, String format, String location) throws IOException {
+        imageStorage.write(location, out -> {
+            if (!ImageIO.write(image, format, out))
+                throw new IOException("No writer for " + format);
+        });
+    }
+
+    private static BufferedImage scale(BufferedImage image, int maxDimension, boolean keepAlpha) {
+        double ratio = (double) maxDimension / Math.max(image.getWidth(), image.getHeight());
+        if (ratio >= 1)
+            return image;
+
+        int width = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+        int type = keepAlpha && image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        var scaled = new BufferedImage(width, height, type);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+}
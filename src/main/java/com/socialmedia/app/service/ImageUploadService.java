@@ -0,0 +1,265 @@
+package com.socialmedia.app.service;
+
+import com.socialmedia.app.model.Image;
+import com.socialmedia.app.model.Post;
+import com.socialmedia.app.repository.ImageRepository;
+import com.socialmedia.app.storage.ImageStorage;
+import jakarta.annotation.PreDestroy;
+import org.apache.tika.Tika;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Service class for validating and storing uploaded image files.
+ * Files are rejected by their declared size before they are read and their media type is detected from the first bytes only.
+ * Image files are stored under the SHA-256 of their content, so content that is already stored is not written again
+ * and all images with the same content share one file. The name is only known once the whole upload is read,
+ * so an upload is read twice when it is written: once while the hash is computed and the type is detected, and once to copy it.
+ * Files written for images that can't be saved are queued for unlinking, which keeps them if other images use them by then.
+ * The files of one upload are processed concurrently by the request thread and a few helper threads.
+ * Helpers are only started while a thread is free and are never queued, so the request thread processes
+ * whatever the helpers haven't taken and never waits for a helper that hasn't started.
+ */
+@Service
+public class ImageUploadService {
+    private static final Set<String> ALLOWED_TYPES = Set.of("image/jpeg", "image/png", "image/webp");
+    private static final long MAX_IMAGE_SIZE = 20L * 1024 * 1024;
+    // The signatures of all allowed types are within the first few bytes
+    private static final int HEADER_BYTES = 512;
+
+    private final ImageRepository imageRepository;
+    private final ImageStorage imageStorage;
+    private final JobService jobService;
+    private final int parallelism;
+    private final ExecutorService helpers;
+    private final Tika tika = new Tika();
+
+    /**
+     * Constructs an ImageUploadService with the provided repository, image storage, job service and upload thread limits.
+     *
+     * @param imageRepository the repository for managing image data
+     * @param imageStorage    the storage the image files are kept in
+     * @param jobService      the service whose instance ID identifies the storage the files are kept in
+     * @param parallelism     the number of files of one upload processed at the same time, including the request thread
+     * @param threads         the number of helper threads shared by all uploads
+     */
+    public ImageUploadService(ImageRepository imageRepository,
+                              ImageStorage imageStorage,
+                              JobService jobService,
+                              @Value("${posts.images.upload-parallelism:4}") int parallelism,
+                              @Value("${posts.images.upload-threads:32}") int threads) {
+        this.imageRepository = imageRepository;
+        this.imageStorage = imageStorage;
+        this.jobService = jobService;
+        this.parallelism = parallelism;
+        this.helpers = new ThreadPoolExecutor(0, threads, 60, TimeUnit.SECONDS, new SynchronousQueue<>());
+    }
+
+    /**
+     * Validates uploaded image files, stores the files with new content and adds the images to a post.
+     * Nothing is stored if any of the files is rejected.
+     *
+     * @param post   the post to add the images to
+     * @param images an array of MultipartFile objects representing the images
+     * @return the saved images
+     * @throws IOException             if there is an error while reading or saving the images
+     * @throws ResponseStatusException if an image is empty, the uploaded file is not an image,
+     *                                 or the uploaded image is too large
+     */
+    public List<Image> saveImages(Post post, MultipartFile[] images) throws IOException {
+        for (var image : images) {
+            if (image.isEmpty())
+                throw new ResponseStatusException(HttpStatus.NOT_ACCEPTABLE, "Image is empty!");
+            if (image.getSize() > MAX_IMAGE_SIZE)
+                throw new ResponseStatusException(HttpStatus.NOT_ACCEPTABLE, "Uploaded image is too large! Maximum size is 20MB");
+        }
+
+        var uploads = inParallel(Arrays.asList(images), this::inspect);
+        inParallel(uploads, Upload::store);
+
+        var savedImages = new ArrayList<Image>(uploads.size());
+        for (var upload : uploads) {
+            var image = new Image(upload.location(), upload.mediaType(), upload.checksum());
+            image.setPost(post);
+            image.setStorage(jobService.getInstanceId());
+            savedImages.add(image);
+        }
+        try {
+            imageRepository.saveAll(savedImages);
+        } catch (RuntimeException e) {
+            unlinkWritten(uploads, e);
+            throw e;
+        }
+
+        // The purger may have removed a file that was no longer used just before the images above started using it again
+        inParallel(uploads, Upload::store);
+
+        return savedImages;
+    }
+
+    /**
+     * Stops the helper threads when the application shuts down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        helpers.shutdownNow();
+    }
+
+    private void unlinkWritten(List<Upload> uploads, RuntimeException failure) {
+        var locations = uploads.stream().filter(Upload::written).map(Upload::location).distinct().toList();
+        try {
+            jobService.enqueueLocal(PostPurgeService.UNLINK_JOB, locations, PostPurgeService.UNLINK_PRIORITY);
+        } catch (RuntimeException e) {
+            // Most likely the same database failure, the files stay until the content is uploaded and purged again
+            failure.addSuppressed(e);
+        }
+    }
+
+    private Upload inspect(MultipartFile image) {
+        try (InputStream in = new DigestInputStream(image.getInputStream(), sha256())) {
+            byte[] header = in.readNBytes(HEADER_BYTES);
+            String fileType = tika.detect(header);
+            if (!ALLOWED_TYPES.contains(fileType))
+                throw new ResponseStatusException(HttpStatus.NOT_ACCEPTABLE, "Uploaded file is not an image! Supported formats: JPEG, PNG, WEBP.");
+
+            in.transferTo(OutputStream.nullOutputStream());
+            String checksum = HexFormat.of().formatHex(((DigestInputStream) in).getMessageDigest().digest());
+            return new Upload(image, checksum, fileType);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private <T, R> List<R> inParallel(List<T> items, Function<T, R> task) throws IOException {
+        var results = new ArrayList<R>(Collections.nCopies(items.size(), null));
+        var next = new AtomicInteger();
+        var done = new CountDownLatch(items.size());
+        var failure = new AtomicReference<RuntimeException>();
+        Runnable worker = () -> {
+            int index;
+            while ((index = next.getAndIncrement()) < items.size()) {
+                try {
+                    results.set(index, task.apply(items.get(index)));
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            }
+        };
+
+        for (int i = 1; i < Math.min(parallelism, items.size()); i++) {
+            try {
+                helpers.execute(worker);
+            } catch (RejectedExecutionException e) {
+                // All helper threads are busy, the request thread takes the remaining files
+                break;
+            }
+        }
+        worker.run();
+
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the upload to be processed");
+        }
+
+        if (failure.get() instanceof UncheckedIOException e)
+            throw e.getCause();
+        if (failure.get() != null)
+            throw failure.get();
+        return results;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * An inspected upload waiting to be stored.
+     */
+    private final class Upload {
+        private final MultipartFile file;
+        private final String checksum;
+        private final String mediaType;
+        // Set once this upload wrote its file, which no saved image may use yet
+        private volatile boolean written;
+
+        private Upload(MultipartFile file, String checksum, String mediaType) {
+            this.file = file;
+            this.checksum = checksum;
+            this.mediaType = mediaType;
+        }
+
+        private String checksum() {
+            return checksum;
+        }
+
+        private String mediaType() {
+            return mediaType;
+        }
+
+        private boolean written() {
+            return written;
+        }
+
+        private String location() {
+            return checksum + "." + mediaType.split("/")[1];
+        }
+
+        /**
+         * Writes the upload to its file unless the file exists.
+         * The content is copied from the upload instead of moving the upload into place,
+         * so it can be written again if the purger removes the file before the images using it are saved.
+         *
+         * @return the upload
+         */
+        private Upload store() {
+            try {
+                if (imageStorage.stat(location()) == null) {
+                    imageStorage.write(location(), out -> {
+                        try (InputStream in = file.getInputStream()) {
+                            in.transferTo(out);
+                        }
+                    });
+                    written = true;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+    }
+}
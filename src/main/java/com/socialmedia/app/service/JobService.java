@@ -0,0 +1,300 @@
+package com.socialmedia.app.service;
+
+import com.socialmedia.app.model.Job;
+import com.socialmedia.app.repository.JobRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Service class for running background jobs queued in the database.
+ * Every instance of the application polls the queue for due jobs, as many as it has idle workers,
+ * and claims them by pushing their due time past a lease in the transaction that locked them with {@code skip locked},
+ * so instances never wait for each other and never claim the same job. Jobs of an instance that stops while running them
+ * are claimed again once their lease runs out, so jobs are run at least once and their handlers must be idempotent.
+ * Jobs working on files only one instance has, e.g. images of the local, packed or memory storage, are owned by that instance,
+ * either queued by it with {@link #enqueueLocal} or queued for it with its ID: only instances with the same {@code jobs.instance-id}
+ * claim them, so instances sharing their storage share the ID. The ID must be set explicitly and kept across restarts and redeployments,
+ * as the files of the local and packed storage outlive the instance and only an instance with the same ID runs the jobs it left;
+ * only the memory storage, whose files are gone with the instance, gets a random ID when none is set.
+ * Owned jobs that stay due longer than {@code jobs.orphan-timeout}, as no instance with their owner's ID is left, are given up.
+ * Failed jobs are retried with an exponentially growing backoff, and kept as failed once their attempts are used up,
+ * until they are pruned after {@code jobs.failed-retention}.
+ * Throughput and lag are published as the {@code jobs.*} metrics tagged by job type:
+ * the run time as {@code jobs.duration}, the time between a job being due and being claimed as {@code jobs.lag},
+ * and the due jobs no worker of this instance has claimed yet as the {@code jobs.pending} gauge.
+ */
+@Service
+public class JobService {
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final JobRepository jobRepository;
+    private final TransactionOperations transactionOperations;
+    private final String instanceId;
+    private final Duration lease;
+    private final int maxAttempts;
+    private final Duration backoff;
+    private final Duration failedRetention;
+    private final Duration orphanTimeout;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Handler> handlers = new ConcurrentHashMap<>();
+    private final ExecutorService workers;
+    // A permit for every worker that isn't running a job, only taken by the poller
+    private final Semaphore idleWorkers;
+    private final AtomicLong pending = new AtomicLong();
+
+    /**
+     * Constructs a JobService with the provided repository, transaction operations, instance ID, worker limits and meter registry.
+     *
+     * @param jobRepository         the repository for managing job data
+     * @param transactionOperations the operations running the claims in a transaction
+     * @param instanceId            the ID of this instance, owning the jobs it queues with {@link #enqueueLocal}
+     * @param storage               the name of the image storage backend, which decides whether the ID may be left unset
+     * @param threads               the number of jobs run at the same time by this instance
+     * @param lease                 the time after which a claimed job that hasn't finished is claimed again
+     * @param maxAttempts           the number of times a job is run before it is given up
+     * @param backoff               the delay before a failed job is retried, doubled with every attempt
+     * @param failedRetention       the time a given up job is kept for
+     * @param orphanTimeout         the time an owned job may stay due before it is given up
+     * @param meterRegistry         the registry the job metrics are registered with
+     */
+    public JobService(JobRepository jobRepository,
+                      TransactionOperations transactionOperations,
+                      @Value("${jobs.instance-id:}") String instanceId,
+                      @Value("${posts.images.storage:local}") String storage,
+                      @Value("${jobs.threads:4}") int threads,
+                      @Value("${jobs.lease:PT5M}") Duration lease,
+                      @Value("${jobs.max-attempts:5}") int maxAttempts,
+                      @Value("${jobs.backoff:PT10S}") Duration backoff,
+                      @Value("${jobs.failed-retention:P7D}") Duration failedRetention,
+                      @Value("${jobs.orphan-timeout:P1D}") Duration orphanTimeout,
+                      MeterRegistry meterRegistry) {
+        this.jobRepository = jobRepository;
+        this.transactionOperations = transactionOperations;
+        this.instanceId = resolveInstanceId(instanceId, storage);
+        this.lease = lease;
+        this.maxAttempts = maxAttempts;
+        this.backoff = backoff;
+        this.failedRetention = failedRetention;
+        this.orphanTimeout = orphanTimeout;
+        this.meterRegistry = meterRegistry;
+        this.workers = Executors.newFixedThreadPool(threads);
+        this.idleWorkers = new Semaphore(threads);
+        meterRegistry.gauge("jobs.pending", pending);
+    }
+
+    /**
+     * Returns the ID of this instance, which owns the jobs it queues with {@link #enqueueLocal}.
+     *
+     * @return the ID of this instance
+     */
+    public String getInstanceId() {
+        return instanceId;
+    }
+
+    /**
+     * Registers the handler running the jobs of a type.
+     *
+     * @param type    the type of the jobs
+     * @param handler the handler running the jobs
+     */
+    public void register(String type, Handler handler) {
+        handlers.put(type, handler);
+    }
+
+    /**
+     * Queues jobs of a type, one for every payload, due immediately. The jobs are inserted in one batch.
+     *
+     * @param type     the type of the jobs
+     * @param payloads the payloads passed to the handler
+     * @param priority the priority of the jobs, higher priorities are claimed first
+     */
+    public void enqueue(String type, Collection<String> payloads, int priority) {
+        enqueue(type, payloads, null, priority);
+    }
+
+    /**
+     * Queues jobs of a type that only this instance can run, one for every payload, due immediately.
+     * The jobs are inserted in one batch.
+     *
+     * @param type     the type of the jobs
+     * @param payloads the payloads passed to the handler
+     * @param priority the priority of the jobs, higher priorities are claimed first
+     */
+    public void enqueueLocal(String type, Collection<String> payloads, int priority) {
+        enqueue(type, payloads, instanceId, priority);
+    }
+
+    /**
+     * Queues jobs of a type that only instances with the given ID can run, one for every payload, due immediately.
+     * The jobs are inserted in one batch.
+     *
+     * @param type     the type of the jobs
+     * @param payloads the payloads passed to the handler
+     * @param owner    the ID of the instances running the jobs, or null if any instance can run them
+     * @param priority the priority of the jobs, higher priorities are claimed first
+     */
+    public void enqueue(String type, Collection<String> payloads, String owner, int priority) {
+        if (payloads.isEmpty())
+            return;
+
+        var now = Instant.now();
+        jobRepository.saveAll(payloads.stream().map(payload -> new Job(type, payload, owner, priority, now)).toList());
+        meterRegistry.counter("jobs.enqueued", "type", type).increment(payloads.size());
+    }
+
+    /**
+     * Claims due jobs for the idle workers and hands them over, until the queue has no more due jobs or no worker is idle.
+     */
+    @Scheduled(fixedDelayString = "${jobs.poll-interval:PT1S}")
+    public void poll() {
+        int idle;
+        int claimed;
+        do {
+            idle = idleWorkers.drainPermits();
+            List<Job> jobs = List.of();
+            try {
+                if (idle > 0)
+                    jobs = claim(idle);
+            } finally {
+                idleWorkers.release(idle - jobs.size());
+            }
+
+            for (var job : jobs) {
+                try {
+                    workers.execute(() -> run(job));
+                } catch (RejectedExecutionException e) {
+                    // Shutting down, the lease runs out and the job is claimed again
+                    idleWorkers.release();
+                }
+            }
+            claimed = jobs.size();
+        } while (idle > 0 && claimed == idle);
+
+        pending.set(jobRepository.countDue(Instant.now(), instanceId));
+    }
+
+    /**
+     * Gives up the owned jobs that stayed due longer than the orphan timeout, as their owner is gone,
+     * and removes the jobs given up longer ago than the retention. Every instance prunes, pruning the same jobs does no harm.
+     */
+    @Scheduled(fixedDelayString = "${jobs.prune-interval:PT1H}")
+    public void prune() {
+        var now = Instant.now();
+        int expired = jobRepository.markOrphansFailed(now.minus(orphanTimeout), now,
+                "Not claimed by an instance with the ID of its owner within " + orphanTimeout);
+        meterRegistry.counter("jobs.expired").increment(expired);
+        int pruned = jobRepository.removeFailedBefore(now.minus(failedRetention));
+        meterRegistry.counter("jobs.pruned").increment(pruned);
+    }
+
+    /**
+     * Stops the workers when the application shuts down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Claims due jobs this instance can run in one transaction, pushing their due time past the lease.
+     *
+     * @param limit the maximum number of jobs
+     * @return the claimed jobs
+     */
+    List<Job> claim(int limit) {
+        var now = Instant.now();
+        return transactionOperations.execute(status -> {
+            var jobs = jobRepository.findDue(now, instanceId, PageRequest.of(0, limit));
+            for (var job : jobs) {
+                meterRegistry.timer("jobs.lag", "type", job.getType()).record(Duration.between(job.getRunAt(), now));
+                // Written back when the transaction commits, together with releasing the locks
+                job.setRunAt(now.plus(lease));
+                job.setAttempts(job.getAttempts() + 1);
+            }
+            return jobs;
+        });
+    }
+
+    /**
+     * Runs a claimed job and records its outcome: a completed job is removed,
+     * a failed one is retried after the backoff or given up once its attempts are used up.
+     *
+     * @param job the claimed job
+     */
+    void run(Job job) {
+        try {
+            var handler = handlers.get(job.getType());
+            if (handler == null)
+                throw new IllegalStateException("No handler for jobs of type " + job.getType());
+
+            Timer.Sample sample = Timer.start(meterRegistry);
+            handler.handle(job.getPayload());
+            sample.stop(meterRegistry.timer("jobs.duration", "type", job.getType()));
+
+            jobRepository.removeById(job.getId());
+            meterRegistry.counter("jobs.completed", "type", job.getType()).increment();
+        } catch (Exception e) {
+            fail(job, e);
+        } finally {
+            idleWorkers.release();
+        }
+    }
+
+    private static String resolveInstanceId(String instanceId, String storage) {
+        if (!instanceId.isBlank())
+            return instanceId;
+        if (storage.equals("memory"))
+            return UUID.randomUUID().toString();
+
+        throw new IllegalStateException("jobs.instance-id is not set! Set a stable ID, shared by the instances sharing the image storage");
+    }
+
+    private void fail(Job job, Exception e) {
+        var now = Instant.now();
+        var error = String.valueOf(e);
+        if (error.length() > MAX_ERROR_LENGTH)
+            error = error.substring(0, MAX_ERROR_LENGTH);
+
+        if (job.getAttempts() >= maxAttempts) {
+            jobRepository.markFailed(job.getId(), now, error);
+            meterRegistry.counter("jobs.failed", "type", job.getType()).increment();
+        } else {
+            var delay = backoff.multipliedBy(1L << Math.min(job.getAttempts() - 1, 20));
+            jobRepository.reschedule(job.getId(), now.plus(delay), error);
+            meterRegistry.counter("jobs.retried", "type", job.getType()).increment();
+        }
+    }
+
+    /**
+     * Runs the jobs of a type.
+     */
+    @FunctionalInterface
+    public interface Handler {
+        /**
+         * Runs a job. A job is completed when this returns and retried when it throws.
+         *
+         * @param payload the payload of the job
+         * @throws Exception if the job failed
+         */
+        void handle(String payload) throws Exception;
+    }
+}
@@ -0,0 +1,76 @@
+package com.socialmedia.app.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.socialmedia.app.dto.PostDto;
+import com.socialmedia.app.event.PostDeletedEvent;
+import com.socialmedia.app.event.PostUpdatedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Service class for caching single posts read by their ID.
+ * Posts are evicted by frequency and recency once the cache is full, dropped as soon as they are edited,
+ * get new images or are deleted, and expire after the configured time in any case.
+ * The size, hits, misses and evictions of the cache are published as the {@code cache.*} metrics with {@code cache=posts}.
+ */
+@Service
+public class PostCacheService {
+    private final Cache<Long, PostDto> posts;
+
+    /**
+     * Constructs a PostCacheService with the provided cache limits and meter registry.
+     *
+     * @param maxPosts      the maximum number of posts kept in memory
+     * @param ttl           the time after which cached posts expire
+     * @param meterRegistry the registry the cache metrics are registered with
+     */
+    public PostCacheService(@Value("${posts.cache.max-posts:100000}") long maxPosts,
+                            @Value("${posts.cache.ttl:10m}") Duration ttl,
+                            MeterRegistry meterRegistry) {
+        this.posts = Caffeine.newBuilder()
+                .maximumSize(maxPosts)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, posts, "posts");
+    }
+
+    /**
+     * Retrieves a post from the cache, loading and caching it if it is not cached yet.
+     * Concurrent reads of the same missing post wait for a single load.
+     *
+     * @param id     the ID of the post
+     * @param loader the function loading the post, throwing if it is not found
+     * @return the post DTO
+     */
+    public PostDto getPost(Long id, Function<Long, PostDto> loader) {
+        return posts.get(id, loader);
+    }
+
+    /**
+     * Drops a cached post when it is edited or gets new images.
+     *
+     * @param event the event describing the updated post
+     */
+    @EventListener
+    public void onPostUpdated(PostUpdatedEvent event) {
+        posts.invalidate(event.postId());
+    }
+
+    /**
+     * Drops a cached post when it is deleted.
+     *
+     * @param event the event describing the deleted post
+     */
+    @EventListener
+    public void onPostDeleted(PostDeletedEvent event) {
+        posts.invalidate(event.postId());
+    }
+}
@@ -0,0 +1,189 @@
+package com.socialmedia.app.service;
+
+import com.socialmedia.app.dto.PostImageFile;
+import com.socialmedia.app.event.PostsPurgedEvent;
+import com.socialmedia.app.repository.ImageRepository;
+import com.socialmedia.app.repository.PostRepository;
+import com.socialmedia.app.storage.ImageStorage;
+import com.socialmedia.app.util.ImageSize;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Service class for purging deleted posts in the background.
+ * Deleting a post only marks it as deleted, this service then removes the image rows of deleted posts
+ * and the posts themselves in bulk, one batch of posts at a time.
+ * Every batch is purged in one transaction holding the locks of its posts, so every instance purges other posts.
+ * The files are not touched by the purge, as the instance purging a batch may not have the storage holding them:
+ * the batch queues a job for every file, owned by the instance whose storage holds it, which unlinks the file and its renditions
+ * and is retried when unlinking fails. Image files are shared by all images with the same content in one storage,
+ * so the job only unlinks a file that no image uses anymore.
+ * Progress is published as the {@code posts.purge.*} metrics.
+ */
+@Service
+public class PostPurgeService {
+    private static final String MOVED_ASIDE = ".deleting";
+    static final String UNLINK_JOB = "images.unlink";
+    static final int UNLINK_PRIORITY = 0;
+
+    private final PostRepository postRepository;
+    private final ImageRepository imageRepository;
+    private final ImageStorage imageStorage;
+    private final ApplicationEventPublisher eventPublisher;
+    private final JobService jobService;
+    private final TransactionOperations transactionOperations;
+    private final int batchSize;
+    private final AtomicLong pending = new AtomicLong();
+    private final Counter purgedPosts;
+    private final Counter purgedImages;
+    private final Counter failedFiles;
+
+    /**
+     * Constructs a PostPurgeService with the provided repositories, image storage, event publisher, job service,
+     * transaction operations, batch size and meter registry, and registers the handler of the unlink jobs.
+     *
+     * @param postRepository        the repository for managing post data
+     * @param imageRepository       the repository for managing image data
+     * @param imageStorage          the storage the image files are kept in
+     * @param eventPublisher        the publisher notifying listeners of purged posts
+     * @param jobService            the service running the unlink jobs
+     * @param transactionOperations the operations running every batch in a transaction
+     * @param batchSize             the number of posts purged at once
+     * @param meterRegistry         the registry the purge metrics are registered with
+     */
+    public PostPurgeService(PostRepository postRepository,
+                            ImageRepository imageRepository,
+                            ImageStorage imageStorage,
+                            ApplicationEventPublisher eventPublisher,
+                            JobService jobService,
+                            TransactionOperations transactionOperations,
+                            @Value("${posts.purge.batch-size:500}") int batchSize,
+                            MeterRegistry meterRegistry) {
+        this.postRepository = postRepository;
+        this.imageRepository = imageRepository;
+        this.imageStorage = imageStorage;
+        this.eventPublisher = eventPublisher;
+        this.jobService = jobService;
+        this.transactionOperations = transactionOperations;
+        this.batchSize = batchSize;
+        this.purgedPosts = meterRegistry.counter("posts.purge.posts");
+        this.purgedImages = meterRegistry.counter("posts.purge.images");
+        this.failedFiles = meterRegistry.counter("posts.purge.files.failed");
+        meterRegistry.gauge("posts.purge.pending", pending);
+        jobService.register(UNLINK_JOB, this::unlink);
+    }
+
+    /**
+     * Purges deleted posts batch by batch, until a batch is not full.
+     */
+    @Scheduled(fixedDelayString = "${posts.purge.interval:PT10S}")
+    public void purge() {
+        int purged;
+        do {
+            purged = transactionOperations.execute(status -> purgeBatch());
+        } while (purged == batchSize);
+
+        pending.set(postRepository.countDeleted());
+    }
+
+    /**
+     * Purges one batch of deleted posts. Must run in a transaction, which keeps other instances from purging the same posts.
+     *
+     * @return the number of purged posts
+     */
+    int purgeBatch() {
+        var postIds = postRepository.findDeletedIds(batchSize);
+        if (postIds.isEmpty())
+            return 0;
+
+        var files = imageRepository.findFilesByPostIds(postIds);
+
+        // Queued in the transaction removing the rows, so the files are unlinked exactly if the posts are gone
+        var locationsByStorage = files
+                .stream()
+                .collect(Collectors.groupingBy(file -> Optional.ofNullable(file.getStorage()),
+                        Collectors.mapping(PostImageFile::getLocation, Collectors.toCollection(TreeSet::new))));
+        locationsByStorage.forEach((storage, locations) ->
+                jobService.enqueue(UNLINK_JOB, List.copyOf(locations), storage.orElse(null), UNLINK_PRIORITY));
+
+        imageRepository.deleteByPostIds(postIds);
+        postRepository.purgeByIds(postIds);
+        purgedPosts.increment(postIds.size());
+        purgedImages.increment(files.size());
+        eventPublisher.publishEvent(new PostsPurgedEvent(postIds));
+
+        return postIds.size();
+    }
+
+    /**
+     * Unlinks an image file of this instance's storage whose images were purged, together with its renditions,
+     * unless other images use the file. Files removed by an earlier attempt and renditions never generated count as unlinked.
+     * The file is moved aside before it is unlinked, and given back if an upload of the same content started using it meanwhile.
+     * An upload that found the file before it was moved aside and saves its image after the check writes the file again.
+     *
+     * @param location the location of the image file
+     * @throws IOException if a file can't be unlinked
+     */
+    void unlink(String location) throws IOException {
+        var storage = jobService.getInstanceId();
+        if (imageRepository.existsByLocationAndStorage(location, storage))
+            return;
+
+        boolean movedAside = moveAside(location);
+        if (imageRepository.existsByLocationAndStorage(location, storage)) {
+            if (movedAside)
+                restore(location);
+            return;
+        }
+
+        var files = new ArrayList<String>();
+        files.add(location + MOVED_ASIDE);
+        for (var size : ImageSize.values()) {
+            if (size != ImageSize.ORIGINAL)
+                files.add(size.location(location));
+        }
+
+        IOException failure = null;
+        for (var file : files) {
+            try {
+                imageStorage.delete(file);
+            } catch (IOException e) {
+                failedFiles.increment();
+                failure = e;
+            }
+        }
+        if (failure != null)
+            throw failure;
+    }
+
+    private boolean moveAside(String location) {
+        try {
+            imageStorage.move(location, location + MOVED_ASIDE);
+            return true;
+        } catch (IOException e) {
+            // Already moved aside by an earlier attempt, or never written
+            return false;
+        }
+    }
+
+    private void restore(String location) {
+        try {
+            imageStorage.move(location + MOVED_ASIDE, location);
+        } catch (IOException e) {
+            failedFiles.increment();
+        }
+    }
+}
@@ -1,29 +1,47 @@
 package com.socialmedia.app.service;
 
+import com.socialmedia.app.dto.CursorPageDto;
 import com.socialmedia.app.dto.PostDto;
+import com.socialmedia.app.dto.PostImageEntry;
+import com.socialmedia.app.dto.PostSummaryDto;
+import com.socialmedia.app.event.ImagesAddedEvent;
+import com.socialmedia.app.event.PostCreatedEvent;
+import com.socialmedia.app.event.PostDeletedEvent;
+import com.socialmedia.app.event.PostUpdatedEvent;
+import com.socialmedia.app.event.PostsCreatedEvent;
 import com.socialmedia.app.model.Image;
 import com.socialmedia.app.model.Post;
 import com.socialmedia.app.repository.ImageRepository;
 import com.socialmedia.app.repository.PostRepository;
 import com.socialmedia.app.repository.UserRepository;
+import com.socialmedia.app.storage.ImageMetadata;
+import com.socialmedia.app.storage.ImageStorage;
+import com.socialmedia.app.util.ImageSize;
 import com.socialmedia.app.util.PostConvertor;
-import org.apache.tika.Tika;
-import org.springframework.core.io.InputStreamResource;
+import com.socialmedia.app.util.PostCursor;
+import com.socialmedia.app.util.SingleFlight;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.security.Principal;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -35,44 +53,156 @@ public class PostService {
     private final UserRepository userRepository;
     private final ImageRepository imageRepository;
     private final PostConvertor postConvertor;
+    private final TimelineService timelineService;
+    private final FeedPageCacheService feedPageCacheService;
+    private final PostCacheService postCacheService;
+    private final ImageUploadService imageUploadService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SingleFlight<String, Set<PostDto>> userPostsLoads;
+    private final ImageStorage imageStorage;
+    private final ImageCacheService imageCacheService;
+    private final SignedImageUrlService signedImageUrlService;
 
-    private final Tika tika = new Tika();
+    private static final long[] NO_IMAGES = new long[0];
+    private static final int MAX_BULK_POSTS = 10_000;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final Duration IMAGE_MAX_AGE = Duration.ofDays(365);
 
-    public PostService(PostRepository postRepository, UserRepository userRepository, ImageRepository imageRepository, PostConvertor postConvertor) {
+    public PostService(PostRepository postRepository, UserRepository userRepository, ImageRepository imageRepository, PostConvertor postConvertor,
+                       TimelineService timelineService, FeedPageCacheService feedPageCacheService, PostCacheService postCacheService,
+                       ImageUploadService imageUploadService, ApplicationEventPublisher eventPublisher, ImageStorage imageStorage,
+                       ImageCacheService imageCacheService, SignedImageUrlService signedImageUrlService, @Value("${reads.coalescing-timeout:5s}") Duration coalescingTimeout) {
         this.postRepository = postRepository;
         this.userRepository = userRepository;
         this.imageRepository = imageRepository;
         this.postConvertor = postConvertor;
+        this.timelineService = timelineService;
+        this.feedPageCacheService = feedPageCacheService;
+        this.postCacheService = postCacheService;
+        this.imageUploadService = imageUploadService;
+        this.eventPublisher = eventPublisher;
+        this.userPostsLoads = new SingleFlight<>(coalescingTimeout);
+        this.imageStorage = imageStorage;
+        this.imageCacheService = imageCacheService;
+        this.signedImageUrlService = signedImageUrlService;
     }
 
     /**
      * Retrieves a post by its ID.
+     * Posts are served from the post cache, missing ones are selected straight into the DTO, without loading the entity.
+     * Concurrent reads of the same missing post share one load of the post cache.
      *
      * @param id the ID of the post
      * @return the post DTO
      * @throws ResponseStatusException if the post is not found
      */
     public PostDto getPostById(Long id) {
-        return postRepository
-                .findById(id)
-                .map(postConvertor::convertToDto)
+        return postCacheService.getPost(id, this::loadPost);
+    }
+
+    /**
+     * Loads a post by its ID from the database.
+     *
+     * @param id the ID of the post
+     * @return the post DTO
+     * @throws ResponseStatusException if the post is not found
+     */
+    private PostDto loadPost(Long id) {
+        var post = postRepository
+                .findDtoById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Post with given id not found!"));
+
+        return withImages(List.of(post)).get(0);
+    }
+
+    /**
+     * Retrieves the posts with the given IDs, keeping the order of the IDs and skipping posts that no longer exist.
+     * The posts and their images are read in one query each.
+     *
+     * @param ids the IDs of the posts
+     * @return a list of post DTOs
+     */
+    public List<PostDto> getPostsByIds(long[] ids) {
+        var posts = postRepository
+                .findDtosByIds(Arrays.stream(ids).boxed().toList())
+                .stream()
+                .collect(Collectors.toMap(PostDto::getId, Function.identity()));
+
+        return withImages(Arrays.stream(ids)
+                .mapToObj(posts::get)
+                .filter(Objects::nonNull)
+                .toList());
     }
 
     /**
      * Retrieves all posts by a given username.
+     * Concurrent reads of the posts of the same user share one load.
      *
      * @param username the username of the user
      * @return a set of post DTOs
-     * @throws ResponseStatusException if the user is not found
+     * @throws ResponseStatusException if the user is not found or a concurrent load of the posts takes too long
      */
     public Set<PostDto> getPostsByUsername(String username) {
+        try {
+            return userPostsLoads.execute(username, () -> loadPostsByUsername(username));
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Timed out waiting for a concurrent request!");
+        }
+    }
+
+    /**
+     * Loads all posts by a given username from the database.
+     *
+     * @param username the username of the user
+     * @return a set of post DTOs
+     * @throws ResponseStatusException if the user is not found
+     */
+    private Set<PostDto> loadPostsByUsername(String username) {
         return postRepository
                 .findAllByUser_UsernameOrderByCreatedAtDesc(username)
-                .map(post -> post.stream().map(postConvertor::convertToDto).collect(Collectors.toSet()))
+                .map(post -> post.stream().map(postConvertor::convertToDto).map(this::withImageUrls).collect(Collectors.toCollection(LinkedHashSet::new)))
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User with given username not found!"));
     }
 
+    /**
+     * Retrieves a page of summaries of the posts by a given username, newest first, starting after the given cursor.
+     * Only the listed columns and the image IDs are read, in one query each, and the images come with signed URLs.
+     *
+     * @param username the username of the user
+     * @param cursor   the cursor returned with the previous page, or null for the first page
+     * @param size     the number of posts per page
+     * @return a page of post summary DTOs with the cursor of the next page
+     * @throws ResponseStatusException if the user is not found, the cursor is invalid or the size is out of range
+     */
+    public CursorPageDto<PostSummaryDto> getPostsByUsername(String username, String cursor, int size) {
+        checkPageSize(size);
+        var userId = userRepository
+                .findIdByUsername(username)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User with given username not found!"));
+
+        Slice<PostSummaryDto> posts;
+        if (cursor == null || cursor.isEmpty()) {
+            posts = postRepository.findSummariesByUserId(userId, PageRequest.of(0, size));
+        } else {
+            var position = decodeCursor(cursor);
+            posts = postRepository.findSummariesByUserIdBefore(userId, position.createdAt(), position.id(), PageRequest.of(0, size));
+        }
+
+        var content = posts.getContent();
+        String nextCursor = null;
+        if (posts.hasNext()) {
+            var last = content.get(content.size() - 1);
+            nextCursor = new PostCursor(last.createdAt(), last.id()).encode();
+        }
+
+        var images = findImageIds(content.stream().map(PostSummaryDto::id).toList());
+
+        return new CursorPageDto<>(content.stream().map(post -> {
+            var imageIds = images.getOrDefault(post.id(), NO_IMAGES);
+            return post.withImages(imageIds, signedImageUrlService.sign(imageIds));
+        }).toList(), nextCursor);
+    }
+
     /**
      * Creates a new post.
      *
@@ -85,76 +215,178 @@ public class PostService {
         var user = userRepository
                 .findByUsername(principal.getName())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User with given username not found!"));
-        post.setUser(user);
+        asNew(post).setUser(user);
         postRepository.save(post);
 
-        return postConvertor.convertToDto(post);
+        eventPublisher.publishEvent(new PostCreatedEvent(post.getId(), user.getId(), post.getCreatedAt()));
+
+        return withImageUrls(postConvertor.convertToDto(post));
+    }
+
+    /**
+     * Creates several posts of the authenticated user at once.
+     * The author is looked up once and the posts are inserted in JDBC batches in one transaction,
+     * with their IDs allocated in blocks by the pooled sequence.
+     *
+     * @param posts     the post objects
+     * @param principal the authenticated user principal
+     * @return the IDs of the created posts, in the order of the given posts
+     * @throws ResponseStatusException if the user is not found or too many posts are given
+     */
+    @Transactional
+    public List<Long> createPosts(List<Post> posts, Principal principal) {
+        if (posts.size() > MAX_BULK_POSTS)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Too many posts! Maximum is " + MAX_BULK_POSTS);
+
+        var userId = userRepository
+                .findIdByUsername(principal.getName())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User with given username not found!"));
+        if (posts.isEmpty())
+            return List.of();
+
+        var user = userRepository.getReferenceById(userId);
+        posts.forEach(post -> asNew(post).setUser(user));
+        postRepository.saveAll(posts);
+        postRepository.flush();
+
+        eventPublisher.publishEvent(new PostsCreatedEvent(userId, posts
+                .stream()
+                .map(post -> new PostCreatedEvent(post.getId(), userId, post.getCreatedAt()))
+                .toList()));
+
+        return posts.stream().map(Post::getId).toList();
     }
 
     /**
      * Edits a post.
+     * The post is updated with one conditional statement without being read first. If the edited post carries a version,
+     * the edit only succeeds if nobody has edited the post since that version was read. Deleted posts can't be edited.
      *
      * @param editedPost the edited post object
      * @param principal  the authenticated user principal
      * @return the updated post DTO
-     * @throws ResponseStatusException if the post is not found or the user is not authorized to edit the post
+     * @throws ResponseStatusException if the user or post is not found or deleted, the user is not authorized to edit the post,
+     *                                 or the post has been edited in the meantime
      */
     public PostDto editPost(Post editedPost, Principal principal) {
-        var post = postRepository
-                .findById(editedPost.getId())
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Post with given id not found!"));
-        if (Objects.equals(post.getUser().getUsername(), principal.getName())) {
-            if (editedPost.getTitle() != null)
-                post.setTitle(editedPost.getTitle());
-            if (editedPost.getBody() != null)
-                post.setBody(editedPost.getBody());
-
-            postRepository.save(post);
+        var userId = userRepository
+                .findIdByUsername(principal.getName())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User with given username not found!"));
 
-            return postConvertor.convertToDto(post);
-        } else {
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You can't edit someone's post!");
+        int updated = postRepository.updateIfCurrent(editedPost.getId(), userId, editedPost.getVersion(),
+                editedPost.getTitle(), editedPost.getBody());
+        if (updated == 0) {
+            // Only a failed edit pays for finding out why it failed
+            var authorId = postRepository
+                    .findAuthorIdById(editedPost.getId())
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Post with given id not found!"));
+            if (!Objects.equals(authorId, userId))
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You can't edit someone's post!");
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Post has been edited in the meantime!");
         }
+
+        eventPublisher.publishEvent(new PostUpdatedEvent(editedPost.getId(), userId));
+
+        return getPostById(editedPost.getId());
     }
 
     /**
      * Deletes a post.
+     * The post is only marked as deleted with one conditional statement and disappears from all reads at once,
+     * its images are removed in the background by the {@link PostPurgeService}.
      *
      * @param id        the ID of the post
      * @param principal the authenticated user principal
-     * @throws ResponseStatusException if the post is not found or the user is not authorized to delete the post
+     * @throws ResponseStatusException if the user or post is not found or the user is not authorized to delete the post
      */
     public void deletePost(Long id, Principal principal) {
-        var post = postRepository
-                .findById(id)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND));
+        var userId = userRepository
+                .findIdByUsername(principal.getName())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User with given username not found!"));
+
+        if (postRepository.markDeleted(id, userId, Instant.now()) == 0) {
+            var authorId = postRepository
+                    .findAuthorIdById(id)
+                    .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Post with given id not found!"));
+            if (!Objects.equals(authorId, userId))
+                throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You can't delete someone's post!");
+        }
 
-        if (Objects.equals(post.getUser().getUsername(), principal.getName()))
-            postRepository.delete(post);
-        else
-            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "You can't delete someone's post!");
+        eventPublisher.publishEvent(new PostDeletedEvent(id, userId));
     }
 
     /**
-     * Retrieves an image by its ID.
+     * Retrieves an image by its ID in the requested size.
+     * A rendition that hasn't been generated yet is substituted by the original, which may only be cached until it is revalidated.
+     * The response carries the length, a strong ETag and the modification time of the image file, which never changes once written,
+     * so conditional and range requests are answered from these headers by Spring MVC and local files are written with {@code sendfile}.
+     * Frequently requested files are served from the off-heap image cache, without looking up the image or reading the storage.
      *
-     * @param id the ID of the image
-     * @return the image as a ResponseEntity with InputStreamResource
+     * @param id   the ID of the image
+     * @param size the size of the image, one of original, large, medium and thumbnail
+     * @return the image file as a ResponseEntity with Resource
      * @throws IOException               if there is an error while reading the image file
-     * @throws ResponseStatusException   if the image is not found
+     * @throws ResponseStatusException   if the image is not found or the size is invalid
+     */
+    public ResponseEntity<Resource> getImage(Long id, String size) throws IOException {
+        return getImage(id, size, CacheControl.maxAge(IMAGE_MAX_AGE).cachePrivate().immutable());
+    }
+
+    /**
+     * Retrieves an image by its ID in the requested size, for a signed image URL whose signature has been verified.
+     * The image may be cached by shared caches such as a reverse proxy, but not longer than the URL is valid.
+     *
+     * @param id      the ID of the image
+     * @param size    the size of the image, one of original, large, medium and thumbnail
+     * @param expires the expiry time of the URL, in seconds since the epoch
+     * @return the image file as a ResponseEntity with Resource
+     * @throws IOException             if there is an error while reading the image file
+     * @throws ResponseStatusException if the image is not found or the size is invalid
+     */
+    public ResponseEntity<Resource> getSignedImage(Long id, String size, long expires) throws IOException {
+        var maxAge = Duration.ofSeconds(Math.max(0, expires - Instant.now().getEpochSecond()));
+        return getImage(id, size, CacheControl.maxAge(maxAge).cachePublic().immutable());
+    }
+
+    /**
+     * Retrieves an image by its ID in the requested size, with the given caching of immutable files.
+     *
+     * @param id                    the ID of the image
+     * @param size                  the size of the image
+     * @param immutableCacheControl the Cache-Control header of files that never change
+     * @return the image file as a ResponseEntity with Resource
+     * @throws IOException             if there is an error while reading the image file
+     * @throws ResponseStatusException if the image is not found or the size is invalid
      */
-    public ResponseEntity<InputStreamResource> getImage(Long id) throws IOException {
+    private ResponseEntity<Resource> getImage(Long id, String size, CacheControl immutableCacheControl) throws IOException {
+        var imageSize = decodeImageSize(size);
+        var cached = imageCacheService.getImage(id, imageSize);
+        if (cached != null)
+            return imageResponse(cached.mediaType(), cached.location(), cached.metadata(), immutableCacheControl, cached.resource());
+
         var image = imageRepository
                 .findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Image with given id not found!"));
 
-        MediaType contentType = MediaType.valueOf(image.getMediaType());
-        InputStream in = Files.newInputStream(Paths.get("savedImages/" + image.getLocation()));
+        var location = imageSize.location(image.getLocation());
+        var metadata = imageStorage.stat(location);
+        boolean immutable = true;
+        if (metadata == null && imageSize != ImageSize.ORIGINAL) {
+            location = image.getLocation();
+            metadata = imageStorage.stat(location);
+            immutable = false;
+        }
+        if (metadata == null)
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Image with given id not found!");
+
+        var resource = imageStorage.read(location);
+        // The original standing in for a missing rendition is left out, the rendition replaces it once generated.
+        // This request is served from the storage either way, so local files are still sent with sendfile
+        if (immutable)
+            imageCacheService.putImage(id, imageSize, image.getPost().getId(), image.getMediaType(), location, metadata, resource);
 
-        return ResponseEntity
-                .ok()
-                .contentType(contentType)
-                .body(new InputStreamResource(in));
+        return imageResponse(image.getMediaType(), location, metadata,
+                immutable ? immutableCacheControl : CacheControl.noCache().cachePrivate(), resource);
     }
 
     /**
@@ -171,32 +403,16 @@ public class PostService {
                 .findById(id)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Post with given id not found!"));
 
-        String[] allowedTypes = {"image/jpeg", "image/png", "image/webp"};
-
-        for (var image : images) {
-            String fileType = tika.detect(image.getBytes());
-
-            if (image.isEmpty()) {
-                throw new ResponseStatusException(HttpStatus.NOT_ACCEPTABLE, "Image is empty!");
-            } else if (!Arrays.asList(allowedTypes).contains(fileType)) {
-                throw new ResponseStatusException(HttpStatus.NOT_ACCEPTABLE, "Uploaded file is not an image! Supported formats: JPEG, PNG, WEBP.");
-            } else if (image.getSize() > 20971520L) {
-                throw new ResponseStatusException(HttpStatus.NOT_ACCEPTABLE, "Uploaded image is too large! Maximum size is 20MB");
-            } else {
-                String newFilename = UUID.randomUUID() + "." + fileType.split("/")[1];
-
-                Path path = Paths.get("savedImages");
-                Files.copy(image.getInputStream(), path.resolve(newFilename));
+        var savedImages = imageUploadService.saveImages(post, images);
 
-                var savedImage = new Image(newFilename, fileType);
-                savedImage.setPost(post);
-                imageRepository.save(savedImage);
-            }
-        }
+        eventPublisher.publishEvent(new PostUpdatedEvent(post.getId(), post.getUser().getId()));
+        eventPublisher.publishEvent(new ImagesAddedEvent(post.getId(), savedImages.stream().map(Image::getLocation).toList()));
     }
 
     /**
      * Retrieves the user feed, which includes posts from the users that the authenticated user is following.
+     * The first pages are served from the feed page cache. Other pages sorted by creation timestamp in descending order
+     * are served from the user's precomputed timeline as long as they fit into it, the rest are queried from the posts of the followed users.
      *
      * @param principal the authenticated user principal
      * @param pageable  the pageable object for pagination
@@ -204,16 +420,201 @@ public class PostService {
      * @throws ResponseStatusException if the user is not found
      */
     public List<PostDto> getUserFeed(Principal principal, PageRequest pageable) {
-        var user = userRepository
-                .findByUsername(principal.getName())
+        var userId = userRepository
+                .findIdByUsername(principal.getName())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User with given username not found!"));
 
+        return feedPageCacheService.getPage(userId, pageable, () -> renderFeedPage(userId, pageable));
+    }
+
+    /**
+     * Renders a page of the user feed.
+     *
+     * @param userId   the ID of the user
+     * @param pageable the pageable object for pagination
+     * @return a list of post DTOs
+     */
+    private List<PostDto> renderFeedPage(Long userId, PageRequest pageable) {
+        var createdAtOrder = pageable.getSort().getOrderFor("createdAt");
+        var direction = createdAtOrder != null ? createdAtOrder.getDirection() : Sort.Direction.DESC;
+        if (direction.isDescending()) {
+            var postIds = timelineService.getFeedPage(userId, pageable.getOffset(), pageable.getPageSize());
+            if (postIds.isPresent())
+                return getPostsByIds(postIds.get());
+        }
+
         var posts = postRepository
-                .findAllByUserIn(user.getFollowing(), pageable);
+                .findFeed(userId, pageable.withSort(direction, "createdAt", "id"));
+
+        return withImages(posts.getContent());
+    }
+
+    /**
+     * Retrieves a page of the user feed starting after the given cursor.
+     * Pages are queried by the position of the last post instead of an offset,
+     * so every page costs the same and posts created in the meantime don't shift the following pages.
+     *
+     * @param principal the authenticated user principal
+     * @param cursor    the cursor returned with the previous page, or null for the first page
+     * @param size      the number of posts per page
+     * @return a page of post DTOs with the cursor of the next page
+     * @throws ResponseStatusException if the user is not found, the cursor is invalid or the size is out of range
+     */
+    public CursorPageDto<PostDto> getUserFeed(Principal principal, String cursor, int size) {
+        checkPageSize(size);
+        var userId = userRepository
+                .findIdByUsername(principal.getName())
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User with given username not found!"));
+
+        Slice<PostDto> posts;
+        if (cursor == null || cursor.isEmpty()) {
+            posts = postRepository.findFeed(userId, PageRequest.of(0, size, Sort.Direction.DESC, "createdAt", "id"));
+        } else {
+            var position = decodeCursor(cursor);
+            posts = postRepository.findFeedBefore(userId, position.createdAt(), position.id(), PageRequest.of(0, size));
+        }
+
+        return toCursorPage(posts);
+    }
+
+    /**
+     * Clears the fields of a post sent by a client that only the server sets.
+     * A post with an ID or version would be merged instead of inserted, leaving the given post without its ID,
+     * and a post with a deletion time would be created deleted.
+     *
+     * @param post the post object
+     * @return the same post object
+     */
+    private static Post asNew(Post post) {
+        post.setId(null);
+        post.setVersion(null);
+        post.setDeletedAt(null);
+        return post;
+    }
+
+    /**
+     * Sets the image IDs and signed image URLs of post DTOs selected without images, reading the images of all posts in one query.
+     *
+     * @param posts the post DTOs
+     * @return the same list of post DTOs
+     */
+    private List<PostDto> withImages(List<PostDto> posts) {
+        var images = findImageIds(posts.stream().map(PostDto::getId).toList());
+        posts.forEach(post -> {
+            post.setImages(images.getOrDefault(post.getId(), NO_IMAGES));
+            withImageUrls(post);
+        });
+
+        return posts;
+    }
 
-        return posts
+    /**
+     * Sets the signed URLs of the images of a post.
+     *
+     * @param post the post DTO with its image IDs
+     * @return the post DTO
+     */
+    private PostDto withImageUrls(PostDto post) {
+        if (post.getImages() != null)
+            post.setImageUrls(signedImageUrlService.sign(post.getImages()));
+        return post;
+    }
+
+    /**
+     * Reads the image IDs of the given posts in one query.
+     *
+     * @param postIds the IDs of the posts
+     * @return a map of post IDs to their image IDs, without entries for posts without images
+     */
+    private Map<Long, long[]> findImageIds(List<Long> postIds) {
+        if (postIds.isEmpty())
+            return Map.of();
+
+        return imageRepository
+                .findEntriesByPostIds(postIds)
                 .stream()
-                .map(postConvertor::convertToDto)
-                .toList();
+                .collect(Collectors.groupingBy(PostImageEntry::postId, Collectors.collectingAndThen(
+                        Collectors.mapping(PostImageEntry::id, Collectors.toList()),
+                        ids -> ids.stream().mapToLong(Long::longValue).toArray())));
+    }
+
+    /**
+     * Decodes a cursor passed by the client.
+     *
+     * @param cursor the encoded cursor
+     * @return the decoded cursor
+     * @throws ResponseStatusException if the cursor is invalid
+     */
+    private PostCursor decodeCursor(String cursor) {
+        try {
+            return PostCursor.decode(cursor);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor!");
+        }
+    }
+
+    /**
+     * Checks the number of posts per page requested by the client.
+     *
+     * @param size the number of posts per page
+     * @throws ResponseStatusException if the size is not between 1 and the maximum page size
+     */
+    private static void checkPageSize(int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid page size! It must be between 1 and " + MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Decodes an image size passed by the client.
+     *
+     * @param size the name of the size
+     * @return the decoded image size
+     * @throws ResponseStatusException if the size is invalid
+     */
+    private ImageSize decodeImageSize(String size) {
+        try {
+            return ImageSize.fromValue(size);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid image size!");
+        }
+    }
+
+    /**
+     * Builds the response serving an image file.
+     *
+     * @param mediaType    the media type of the image
+     * @param location     the location of the image file, used as its ETag
+     * @param metadata     the size and modification time of the image file
+     * @param cacheControl the Cache-Control header of the response
+     * @param resource     the resource reading the image file
+     * @return the image file as a ResponseEntity with Resource
+     */
+    private static ResponseEntity<Resource> imageResponse(String mediaType, String location, ImageMetadata metadata,
+                                                          CacheControl cacheControl, Resource resource) {
+        return ResponseEntity
+                .ok()
+                .contentType(MediaType.valueOf(mediaType))
+                .contentLength(metadata.size())
+                .eTag(location)
+                .lastModified(metadata.lastModified())
+                .cacheControl(cacheControl)
+                .body(resource);
+    }
+
+    /**
+     * Converts a slice of posts to a cursor page, using the last post as the cursor of the next page.
+     *
+     * @param posts the slice of posts
+     * @return a page of post DTOs
+     */
+    private CursorPageDto<PostDto> toCursorPage(Slice<PostDto> posts) {
+        var content = posts.getContent();
+        String nextCursor = null;
+        if (posts.hasNext()) {
+            var last = content.get(content.size() - 1);
+            nextCursor = new PostCursor(last.getCreatedAt(), last.getId()).encode();
+        }
+
+        return new CursorPageDto<>(withImages(content), nextCursor);
     }
 }
@@ -0,0 +1,130 @@
+package com.socialmedia.app.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.socialmedia.app.event.PostCreatedEvent;
+import com.socialmedia.app.event.PostDeletedEvent;
+import com.socialmedia.app.event.PostsCreatedEvent;
+import com.socialmedia.app.repository.PostRepository;
+import com.socialmedia.app.util.Timeline;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Service class for caching the newest posts of authors as compact runs of post IDs and timestamps.
+ * Home timelines are assembled from the cached runs of the followed authors, and posts of authors with
+ * too many followers to fan them out on write are pulled from here when feeds are read,
+ * so building a feed only queries the posts of authors that are not cached yet.
+ */
+@Service
+public class RecentPostsService {
+    private static final int BATCH_SIZE = 1000;
+
+    private final PostRepository postRepository;
+    private final int capacity;
+    private final Cache<Long, Timeline> recentPosts;
+
+    /**
+     * Constructs a RecentPostsService with the provided repository and cache limits.
+     *
+     * @param postRepository the repository for managing post data
+     * @param capacity       the maximum number of posts kept per author
+     * @param maxAuthors     the maximum number of authors kept in memory
+     */
+    public RecentPostsService(PostRepository postRepository,
+                              @Value("${feed.recent-posts.capacity:200}") int capacity,
+                              @Value("${feed.recent-posts.max-authors:10000}") long maxAuthors) {
+        this.postRepository = postRepository;
+        this.capacity = capacity;
+        this.recentPosts = Caffeine.newBuilder()
+                .maximumSize(maxAuthors)
+                .build();
+    }
+
+    /**
+     * Retrieves the newest posts of an author, loading them from the database if they are not in memory yet.
+     *
+     * @param authorId the ID of the author
+     * @param limit    the maximum number of posts to return
+     * @return the newest timeline entries of the author, newest first
+     */
+    public Timeline.Entries getRecentPosts(Long authorId, int limit) {
+        return getRecentPosts(List.of(authorId), limit).get(authorId);
+    }
+
+    /**
+     * Retrieves the newest posts of several authors, loading the authors that are not in memory yet
+     * from the database in batches.
+     *
+     * @param authorIds the IDs of the authors
+     * @param limit     the maximum number of posts to return per author
+     * @return a map of author IDs to their newest timeline entries, newest first
+     */
+    public Map<Long, Timeline.Entries> getRecentPosts(Collection<Long> authorIds, int limit) {
+        var result = new HashMap<Long, Timeline.Entries>();
+        recentPosts
+                .getAll(authorIds, this::loadRecentPosts)
+                .forEach((authorId, posts) -> result.put(authorId, posts.head(limit)));
+        return result;
+    }
+
+    /**
+     * Adds a new post to the cached posts of its author.
+     *
+     * @param event the event describing the created post
+     */
+    @EventListener
+    public void onPostCreated(PostCreatedEvent event) {
+        var posts = recentPosts.getIfPresent(event.authorId());
+        if (posts != null)
+            posts.add(event.postId(), Timeline.toTimestamp(event.createdAt()));
+    }
+
+    /**
+     * Adds several new posts to the cached posts of their author.
+     *
+     * @param event the event describing the created posts
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostsCreated(PostsCreatedEvent event) {
+        var posts = recentPosts.getIfPresent(event.authorId());
+        if (posts != null)
+            event.posts().forEach(post -> posts.add(post.postId(), Timeline.toTimestamp(post.createdAt())));
+    }
+
+    /**
+     * Removes a deleted post from the cached posts of its author.
+     *
+     * @param event the event describing the deleted post
+     */
+    @EventListener
+    public void onPostDeleted(PostDeletedEvent event) {
+        var posts = recentPosts.getIfPresent(event.authorId());
+        if (posts != null)
+            posts.remove(event.postId());
+    }
+
+    private Map<Long, Timeline> loadRecentPosts(Set<? extends Long> authorIds) {
+        var result = new HashMap<Long, Timeline>();
+        authorIds.forEach(authorId -> result.put(authorId, new Timeline(capacity)));
+
+        var ids = new ArrayList<Long>(authorIds);
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            // One entry more than the capacity marks the list as truncated if older posts exist
+            postRepository
+                    .findRecentEntries(ids.subList(from, Math.min(ids.size(), from + BATCH_SIZE)), capacity + 1)
+                    .forEach(entry -> result.get(entry.authorId()).add(entry.id(), Timeline.toTimestamp(entry.createdAt())));
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,121 @@
+package com.socialmedia.app.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Service class for signing image URLs, so images can be downloaded without a token.
+ * A signed URL carries its expiry time and an HMAC-SHA256 of the image ID and the expiry time,
+ * which is checked without decoding a JWT or looking up the user.
+ * Expiry times are rounded up to a whole multiple of the lifetime, so all URLs of an image signed within the same period
+ * are the same and can be cached by the client or a reverse proxy. A URL is therefore valid for one to two lifetimes.
+ * The lifetime must be longer than posts are cached with their URLs.
+ * The key has to be configured and shared by all instances, so the application doesn't start without it.
+ */
+@Service
+public class SignedImageUrlService {
+    public static final String PATH = "/api/v1/images/";
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int MIN_KEY_BYTES = 32;
+
+    private final SecretKeySpec key;
+    private final long ttlSeconds;
+    private final ThreadLocal<Mac> macs;
+
+    /**
+     * Constructs a SignedImageUrlService with the provided signing key and URL lifetime.
+     *
+     * @param key the Base64-encoded key the URLs are signed with, at least 32 bytes long
+     * @param ttl the lifetime of a signed URL
+     * @throws IllegalStateException if the key is not configured or too short
+     */
+    public SignedImageUrlService(@Value("${posts.images.urls.key:}") String key,
+                                 @Value("${posts.images.urls.ttl:1h}") Duration ttl) {
+        if (key.isBlank())
+            throw new IllegalStateException("posts.images.urls.key is not set! Configure a Base64-encoded key of at least "
+                    + MIN_KEY_BYTES + " bytes, shared by all instances");
+        byte[] keyBytes = Base64.getDecoder().decode(key.strip());
+        if (keyBytes.length < MIN_KEY_BYTES)
+            throw new IllegalStateException("posts.images.urls.key is too short! Minimum length is " + MIN_KEY_BYTES + " bytes");
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+        this.ttlSeconds = ttl.toSeconds();
+        // Mac instances are not thread-safe, every request thread keeps its own
+        this.macs = ThreadLocal.withInitial(() -> {
+            try {
+                var mac = Mac.getInstance(ALGORITHM);
+                mac.init(this.key);
+                return mac;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    /**
+     * Signs the URLs of images.
+     *
+     * @param imageIds the IDs of the images
+     * @return the signed URLs, relative to the server, in the order of the IDs
+     */
+    public String[] sign(long[] imageIds) {
+        return sign(imageIds, Instant.now());
+    }
+
+    /**
+     * Verifies the signature of an image URL.
+     *
+     * @param imageId   the ID of the image
+     * @param expires   the expiry time of the URL, in seconds since the epoch
+     * @param signature the signature of the URL
+     * @return true if the signature is valid and the URL hasn't expired
+     */
+    public boolean verify(long imageId, long expires, String signature) {
+        return verify(imageId, expires, signature, Instant.now());
+    }
+
+    /**
+     * Signs the URLs of images at the given time.
+     *
+     * @param imageIds the IDs of the images
+     * @param now      the current time
+     * @return the signed URLs, in the order of the IDs
+     */
+    String[] sign(long[] imageIds, Instant now) {
+        long expires = (now.getEpochSecond() / ttlSeconds + 2) * ttlSeconds;
+        var urls = new String[imageIds.length];
+        for (int i = 0; i < imageIds.length; i++)
+            urls[i] = PATH + imageIds[i] + "?expires=" + expires + "&signature=" + signature(imageIds[i], expires);
+        return urls;
+    }
+
+    /**
+     * Verifies the signature of an image URL at the given time.
+     *
+     * @param imageId   the ID of the image
+     * @param expires   the expiry time of the URL, in seconds since the epoch
+     * @param signature the signature of the URL
+     * @param now       the current time
+     * @return true if the signature is valid and the URL hasn't expired
+     */
+    boolean verify(long imageId, long expires, String signature, Instant now) {
+        if (expires <= now.getEpochSecond())
+            return false;
+        return MessageDigest.isEqual(signature(imageId, expires).getBytes(StandardCharsets.US_ASCII),
+                signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private String signature(long imageId, long expires) {
+        var mac = macs.get();
+        byte[] digest = mac.doFinal((imageId + ":" + expires).getBytes(StandardCharsets.US_ASCII));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+    }
+}
@@ -0,0 +1,244 @@
+package com.socialmedia.app.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.socialmedia.app.event.FollowingChangedEvent;
+import com.socialmedia.app.event.PostCreatedEvent;
+import com.socialmedia.app.event.PostDeletedEvent;
+import com.socialmedia.app.event.PostsCreatedEvent;
+import com.socialmedia.app.repository.UserRepository;
+import com.socialmedia.app.util.Timeline;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Service class for maintaining the precomputed home feed timelines of users.
+ * New posts are pushed into the timelines of the author's followers when they are created (fan-out-on-write),
+ * so a feed page can be read from the timeline without querying the posts of every followed user.
+ * Posts of authors with at least the configured number of followers are not pushed, as a single post would
+ * update millions of timelines. They are pulled from the author's recent posts when the feed is read instead.
+ * Whether an author is pulled is decided by the follower count stored with the author, so every instance agrees on it.
+ * Timelines are kept in memory for recently active users only. They are rebuilt on demand by merging
+ * the cached recent posts of the followed authors, so rebuilding only queries authors that are not cached.
+ * Posts are only pushed into the timelines of the instance they were created on, so timelines are rebuilt
+ * once they are older than the configured time to live to pick up the posts created on other instances.
+ * Posts pushed while a timeline is being built are recorded and pushed into it once it is built,
+ * as the recent posts it is built from may have been read before them.
+ */
+@Service
+public class TimelineService {
+    private final UserRepository userRepository;
+    private final RecentPostsService recentPostsService;
+    private final FollowerService followerService;
+    private final int capacity;
+    private final Cache<Long, HomeTimeline> timelines;
+    // The updates missed by the timelines being built, by user ID
+    private final Map<Long, Queue<Consumer<HomeTimeline>>> building = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a TimelineService with the provided repositories and timeline limits.
+     *
+     * @param userRepository     the repository for managing user data
+     * @param recentPostsService the service providing the recent posts of authors
+     * @param followerService    the service looking up the followers of authors
+     * @param capacity           the maximum number of posts kept in a single timeline
+     * @param maxTimelines       the maximum number of timelines kept in memory
+     * @param ttl                the time after which a timeline is rebuilt
+     */
+    public TimelineService(UserRepository userRepository,
+                           RecentPostsService recentPostsService,
+                           FollowerService followerService,
+                           @Value("${feed.timeline.capacity:800}") int capacity,
+                           @Value("${feed.timeline.max-timelines:100000}") long maxTimelines,
+                           @Value("${feed.timeline.ttl:5m}") Duration ttl) {
+        this.userRepository = userRepository;
+        this.recentPostsService = recentPostsService;
+        this.followerService = followerService;
+        this.capacity = capacity;
+        this.timelines = Caffeine.newBuilder()
+                .maximumSize(maxTimelines)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Retrieves the post IDs of a page of the user's home feed, newest first.
+     * The timeline is built from the followed authors' recent posts if it is not in memory yet,
+     * and the recent posts of followed authors that are not fanned out are merged into it.
+     *
+     * @param userId the ID of the user
+     * @param offset the index of the first post of the page
+     * @param limit  the maximum number of posts in the page
+     * @return an optional array of post IDs, empty if the page reaches past the cached posts
+     */
+    public Optional<long[]> getFeedPage(Long userId, long offset, int limit) {
+        var homeTimeline = getTimeline(userId);
+        if (homeTimeline.pulledAuthorIds().length == 0)
+            return homeTimeline.timeline().page(offset, limit);
+        if (offset + limit > capacity)
+            return Optional.empty();
+
+        int count = (int) offset + limit;
+        var runs = new ArrayList<Timeline.Entries>();
+        runs.add(homeTimeline.timeline().head(count));
+        runs.addAll(recentPostsService
+                .getRecentPosts(Arrays.stream(homeTimeline.pulledAuthorIds()).boxed().toList(), count)
+                .values());
+
+        var merged = Timeline.merge(runs, count);
+        if (merged.postIds().length < count && !merged.complete())
+            return Optional.empty();
+        if (offset >= merged.postIds().length)
+            return Optional.of(new long[0]);
+
+        return Optional.of(Arrays.copyOfRange(merged.postIds(), (int) offset, merged.postIds().length));
+    }
+
+    /**
+     * Pushes a new post into the timelines of the author's followers.
+     * Only timelines that are in memory are updated, the others will contain the post once they are built.
+     * Posts of authors with at least the configured number of followers are only pushed into the timelines
+     * built before the author crossed the threshold, which are found without looking up the followers.
+     *
+     * @param event the event describing the created post
+     */
+    @EventListener
+    public void onPostCreated(PostCreatedEvent event) {
+        pushPosts(event, event.authorId(), List.of(event));
+    }
+
+    /**
+     * Pushes several new posts of the same author into the timelines of the author's followers,
+     * looking up the followers once for all of them.
+     *
+     * @param event the event describing the created posts
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostsCreated(PostsCreatedEvent event) {
+        pushPosts(event, event.authorId(), event.posts());
+    }
+
+    private void pushPosts(Object event, Long authorId, List<PostCreatedEvent> posts) {
+        updateTimelinesPushedBy(event, authorId,
+                timeline -> posts.forEach(post -> timeline.add(post.postId(), Timeline.toTimestamp(post.createdAt()))));
+    }
+
+    private void updateTimelinesPushedBy(Object event, Long authorId, Consumer<Timeline> update) {
+        var followers = followerService.getFollowers(event, authorId);
+        // The followers of pulled authors are not looked up, their posts only go into timelines built while they were pushed
+        if (followers.pulled()) {
+            for (var homeTimeline : timelines.asMap().values()) {
+                if (Arrays.binarySearch(homeTimeline.pushedAuthorIds(), authorId) >= 0)
+                    update.accept(homeTimeline.timeline());
+            }
+            return;
+        }
+
+        Consumer<HomeTimeline> pushedUpdate = homeTimeline -> {
+            // Timelines built while the author was pulled keep pulling the posts until they are rebuilt
+            if (Arrays.binarySearch(homeTimeline.pulledAuthorIds(), authorId) < 0)
+                update.accept(homeTimeline.timeline());
+        };
+        for (var followerId : followers.ids()) {
+            // Recorded before looking for the timeline, so an update is either recorded or finds the built timeline
+            var missed = building.get(followerId);
+            if (missed != null)
+                missed.add(pushedUpdate);
+            var homeTimeline = timelines.getIfPresent(followerId);
+            if (homeTimeline != null)
+                pushedUpdate.accept(homeTimeline);
+        }
+    }
+
+    /**
+     * Removes a deleted post from the timelines of the author's followers.
+     *
+     * @param event the event describing the deleted post
+     */
+    @EventListener
+    public void onPostDeleted(PostDeletedEvent event) {
+        updateTimelinesPushedBy(event, event.authorId(), timeline -> timeline.remove(event.postId()));
+    }
+
+    /**
+     * Drops the timeline of a user whose following set has changed, so that it is rebuilt on the next read.
+     * Dropped once the change is committed, so the rebuilt timeline contains it.
+     *
+     * @param event the event describing the changed following set
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFollowingChanged(FollowingChangedEvent event) {
+        timelines.invalidate(event.followerId());
+    }
+
+    /**
+     * Retrieves the timeline of a user, building it if it is not in memory.
+     * The updates missed while it was built are applied once it is in memory, where later updates find it.
+     * Timeline updates are idempotent, so updates applied both ways do no harm.
+     *
+     * @param userId the ID of the user
+     * @return the timeline of the user
+     */
+    private HomeTimeline getTimeline(Long userId) {
+        var homeTimeline = timelines.get(userId, this::loadTimeline);
+        if (building.remove(userId, homeTimeline.missed())) {
+            Consumer<HomeTimeline> update;
+            while ((update = homeTimeline.missed().poll()) != null)
+                update.accept(homeTimeline);
+        }
+        return homeTimeline;
+    }
+
+    private HomeTimeline loadTimeline(Long userId) {
+        var missed = new ConcurrentLinkedQueue<Consumer<HomeTimeline>>();
+        building.put(userId, missed);
+        try {
+            return buildTimeline(userId, missed);
+        } catch (RuntimeException e) {
+            building.remove(userId, missed);
+            throw e;
+        }
+    }
+
+    private HomeTimeline buildTimeline(Long userId, Queue<Consumer<HomeTimeline>> missed) {
+        var pulledIds = new HashSet<>(followerService.getPulledFollowingIds(userId));
+        var pushed = new ArrayList<Long>();
+        var pulled = new ArrayList<Long>();
+        for (var authorId : userRepository.findFollowingIdsById(userId))
+            (pulledIds.contains(authorId) ? pulled : pushed).add(authorId);
+
+        var runs = new ArrayList<>(recentPostsService.getRecentPosts(pushed, capacity).values());
+        return new HomeTimeline(
+                new Timeline(capacity, Timeline.merge(runs, capacity)),
+                pushed.stream().mapToLong(Long::longValue).sorted().toArray(),
+                pulled.stream().mapToLong(Long::longValue).sorted().toArray(),
+                missed);
+    }
+
+    /**
+     * Timeline of a user together with the followed authors whose posts are pushed into it and those whose posts are pulled.
+     * Authors stay pushed or pulled when they cross the follower threshold, until the timeline is rebuilt.
+     *
+     * @param timeline        the timeline containing the pushed posts
+     * @param pushedAuthorIds the sorted IDs of the followed authors whose posts are pushed into the timeline
+     * @param pulledAuthorIds the sorted IDs of the followed authors that are not fanned out
+     * @param missed          the updates made while the timeline was built, applied once it is in memory
+     */
+    private record HomeTimeline(Timeline timeline, long[] pushedAuthorIds, long[] pulledAuthorIds,
+                                Queue<Consumer<HomeTimeline>> missed) {
+    }
+}
@@ -1,17 +1,25 @@
 package com.socialmedia.app.service;
 
 import com.socialmedia.app.dto.UserDto;
+import com.socialmedia.app.event.FollowingChangedEvent;
 import com.socialmedia.app.model.FriendStatus;
 import com.socialmedia.app.model.User;
 import com.socialmedia.app.repository.FriendStatusRepository;
+import com.socialmedia.app.repository.PostRepository;
 import com.socialmedia.app.repository.UserRepository;
-import com.socialmedia.app.util.UserConvertor;
+import com.socialmedia.app.util.SingleFlight;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.security.Principal;
+import java.time.Duration;
+import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 /**
@@ -21,33 +29,63 @@ import java.util.stream.Collectors;
 public class UserService {
     private final UserRepository userRepository;
     private final FriendStatusRepository friendStatusRepository;
-    private final UserConvertor userConvertor;
+    private final PostRepository postRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SingleFlight<String, UserDto> userLoads;
 
     /**
-     * Constructs a UserService with the provided repositories and user convertor.
+     * Constructs a UserService with the provided repositories and event publisher.
      *
      * @param userRepository        the repository for managing user data
      * @param friendStatusRepository the repository for managing friend status data
-     * @param userConvertor          the convertor for converting User entities to DTOs
+     * @param postRepository         the repository for managing post data
+     * @param eventPublisher         the publisher for following change events
+     * @param coalescingTimeout      the maximum time a read waits for the same read of another request
      */
-    public UserService(UserRepository userRepository, FriendStatusRepository friendStatusRepository, UserConvertor userConvertor) {
+    public UserService(UserRepository userRepository, FriendStatusRepository friendStatusRepository, PostRepository postRepository, ApplicationEventPublisher eventPublisher,
+                       @Value("${reads.coalescing-timeout:5s}") Duration coalescingTimeout) {
         this.userRepository = userRepository;
         this.friendStatusRepository = friendStatusRepository;
-        this.userConvertor = userConvertor;
+        this.postRepository = postRepository;
+        this.eventPublisher = eventPublisher;
+        this.userLoads = new SingleFlight<>(coalescingTimeout);
     }
 
     /**
      * Retrieves a user by their username and returns it as a DTO.
+     * The user, the post IDs and the usernames of each relation are selected straight into the DTO,
+     * without loading the entities and their collections. Concurrent reads of the same user share one load.
      *
      * @param username the username of the user to retrieve
      * @return the UserDto representing the user
-     * @throws ResponseStatusException if the user with the given username is not found
+     * @throws ResponseStatusException if the user with the given username is not found or a concurrent load of the user takes too long
      */
     public UserDto getUserByUsername(String username) {
-        return userRepository
-                .findByUsername(username)
-                .map(userConvertor::convertToDto)
+        try {
+            return userLoads.execute(username, () -> loadUserByUsername(username));
+        } catch (TimeoutException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Timed out waiting for a concurrent request!");
+        }
+    }
+
+    /**
+     * Loads a user by their username from the database.
+     *
+     * @param username the username of the user to load
+     * @return the UserDto representing the user
+     * @throws ResponseStatusException if the user with the given username is not found
+     */
+    private UserDto loadUserByUsername(String username) {
+        var user = userRepository
+                .findDtoByUsername(username)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User with given username not found!"));
+
+        user.setPosts(postRepository.findIdsByUsername(username).stream().mapToLong(Long::longValue).toArray());
+        user.setFollowing(new HashSet<>(userRepository.findFollowingUsernamesByUsername(username)));
+        user.setFollowers(new HashSet<>(userRepository.findFollowerUsernamesByUsername(username)));
+        user.setFriends(new HashSet<>(userRepository.findFriendUsernamesByUsername(username)));
+
+        return user;
     }
 
     /**
@@ -57,17 +95,17 @@ public class UserService {
      * @param principal the principal representing the authenticated user
      * @throws ResponseStatusException if the user with the given username is not found
      */
+    @Transactional
     public void followUser(String username, Principal principal) {
-        var follower = userRepository
-                .findByUsername(principal.getName())
+        var followerId = userRepository
+                .findIdByUsername(principal.getName())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User with given username not found!"));
 
-        var following = userRepository
-                .findByUsername(username)
+        var followingId = userRepository
+                .findIdByUsername(username)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User with given username not found!"));
 
-        follower.followUser(following);
-        userRepository.save(follower);
+        follow(followerId, followingId);
     }
 
     /**
@@ -77,17 +115,17 @@ public class UserService {
      * @param principal the principal representing the authenticated user
      * @throws ResponseStatusException if the user with the given username is not found
      */
+    @Transactional
     public void unFollowUser(String username, Principal principal) {
-        var follower = userRepository
-                .findByUsername(principal.getName())
+        var followerId = userRepository
+                .findIdByUsername(principal.getName())
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User with given username not found!"));
 
-        var following = userRepository
-                .findByUsername(username)
+        var followingId = userRepository
+                .findIdByUsername(username)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User with given username not found!"));
 
-        follower.unFollowUser(following);
-        userRepository.save(follower);
+        unfollow(followerId, followingId);
     }
 
     /**
@@ -137,6 +175,7 @@ public class UserService {
      *                                or if the friend request has already been sent,
      *                                or if the users are already friends
      */
+    @Transactional
     public void addFriend(String username, Principal principal) {
         var toUser = friendStatusRepository.findByUserFrom_UsernameAndUserTo_Username(username, principal.getName());
         var fromUser = friendStatusRepository.findByUserFrom_UsernameAndUserTo_Username(principal.getName(), username);
@@ -154,10 +193,9 @@ public class UserService {
             userFrom.addFriend(userTo);
             userTo.addFriend(userFrom);
 
-            userFrom.followUser(userTo);
-
             userRepository.save(userFrom);
             userRepository.save(userTo);
+            follow(userFrom.getId(), userTo.getId());
         } else if (fromUser.isEmpty()) {
             if (userFrom.searchFriend(userTo)) {
                 throw new ResponseStatusException(HttpStatus.CONFLICT, "You are already friends with given user!");
@@ -165,8 +203,7 @@ public class UserService {
             var newFriendRequest = new FriendStatus(userFrom, userTo);
             friendStatusRepository.save(newFriendRequest);
 
-            userFrom.followUser(userTo);
-            userRepository.save(userFrom);
+            follow(userFrom.getId(), userTo.getId());
         } else {
             throw new ResponseStatusException(HttpStatus.CONFLICT, "Friend request to given user already sent!");
         }
@@ -181,6 +218,7 @@ public class UserService {
      *                                or if the friend request has already been sent,
      *                                or if the users are already friends
      */
+    @Transactional
     public void removeFriend(String username, Principal principal) {
         var toUser = friendStatusRepository.findByUserFrom_UsernameAndUserTo_Username(username, principal.getName());
         var fromUser = friendStatusRepository.findByUserFrom_UsernameAndUserTo_Username(principal.getName(), username);
@@ -197,18 +235,44 @@ public class UserService {
         } else if (fromUser.isPresent()) {
             friendStatusRepository.delete(fromUser.get());
 
-            userFrom.unFollowUser(userTo);
-            userRepository.save(userFrom);
+            unfollow(userFrom.getId(), userTo.getId());
         } else if (userFrom.searchFriend(userTo)) {
             userTo.removeFriend(userFrom);
             userFrom.removeFriend(userTo);
 
-            userFrom.unFollowUser(userTo);
-
             userRepository.save(userFrom);
             userRepository.save(userTo);
+            unfollow(userFrom.getId(), userTo.getId());
         } else {
             throw new ResponseStatusException(HttpStatus.CONFLICT, "You are not friends with given user!");
         }
     }
+
+    /**
+     * Adds a follow and counts the new follower in the same transaction.
+     * The follower is only counted if the follow was added, so concurrent follows count it once.
+     *
+     * @param followerId  the ID of the following user
+     * @param followingId the ID of the followed user
+     */
+    private void follow(Long followerId, Long followingId) {
+        if (userRepository.addFollowing(followerId, followingId) > 0)
+            userRepository.addFollowerCount(followingId, 1);
+
+        eventPublisher.publishEvent(new FollowingChangedEvent(followerId, followingId));
+    }
+
+    /**
+     * Removes a follow and uncounts the follower in the same transaction.
+     * The follower is only uncounted if the follow was removed, so concurrent unfollows uncount it once.
+     *
+     * @param followerId  the ID of the following user
+     * @param followingId the ID of the followed user
+     */
+    private void unfollow(Long followerId, Long followingId) {
+        if (userRepository.removeFollowing(followerId, followingId) > 0)
+            userRepository.addFollowerCount(followingId, -1);
+
+        eventPublisher.publishEvent(new FollowingChangedEvent(followerId, followingId));
+    }
 }
@@ -0,0 +1,82 @@
+package com.socialmedia.app.storage;
+
+import org.springframework.core.io.AbstractResource;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Resource reading the content of a byte buffer, e.g. a slice of a memory-mapped file or an off-heap copy of a file.
+ * Every stream reads the buffer from its position independently, the buffer itself is never modified.
+ */
+public class ByteBufferResource extends AbstractResource {
+    private final ByteBuffer content;
+    private final String description;
+
+    /**
+     * Constructs a ByteBufferResource reading the remaining content of the given buffer.
+     *
+     * @param content     the buffer holding the content
+     * @param description the description of the resource, used in error messages
+     */
+    public ByteBufferResource(ByteBuffer content, String description) {
+        this.content = content;
+        this.description = description;
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public long contentLength() {
+        return content.remaining();
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        return new ByteBufferInputStream(content.duplicate());
+    }
+
+    @Override
+    public String getDescription() {
+        return description;
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? Byte.toUnsignedInt(buffer.get()) : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0)
+                return 0;
+            if (!buffer.hasRemaining())
+                return -1;
+            int read = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, read);
+            return read;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
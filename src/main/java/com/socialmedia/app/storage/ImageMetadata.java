@@ -0,0 +1,12 @@
+package com.socialmedia.app.storage;
+
+import java.time.Instant;
+
+/**
+ * Metadata of a stored image file.
+ *
+ * @param size         the size of the file in bytes
+ * @param lastModified the time the file was last written
+ */
+public record ImageMetadata(long size, Instant lastModified) {
+}
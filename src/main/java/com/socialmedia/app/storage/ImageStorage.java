@@ -0,0 +1,82 @@
+package com.socialmedia.app.storage;
+
+import org.springframework.core.io.Resource;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Storage for image files, addressed by their location, e.g. {@code <sha256>.png}.
+ * Files are written atomically, a reader either sees the complete file or no file at all.
+ */
+public interface ImageStorage extends Closeable {
+    /**
+     * Retrieves the size and modification time of a file.
+     *
+     * @param location the location of the file
+     * @return the metadata of the file, or null if there is no such file
+     * @throws IOException if the metadata can't be read
+     */
+    ImageMetadata stat(String location) throws IOException;
+
+    /**
+     * Returns a file as a resource to be read or served.
+     *
+     * @param location the location of the file
+     * @return the resource reading the file
+     * @throws IOException if the file can't be opened, an implementation may also fail only once the resource is read
+     */
+    Resource read(String location) throws IOException;
+
+    /**
+     * Writes a file produced by a writer, replacing the file at the location if there is one.
+     *
+     * @param location the location of the file
+     * @param writer   the writer producing the content of the file
+     * @throws IOException if the file can't be written
+     */
+    void write(String location, ContentWriter writer) throws IOException;
+
+    /**
+     * Moves a file to another location atomically, replacing the file at the target location if there is one.
+     *
+     * @param source the location of the file
+     * @param target the new location of the file
+     * @throws java.nio.file.NoSuchFileException if there is no file at the source location
+     * @throws IOException                       if the file can't be moved
+     */
+    void move(String source, String target) throws IOException;
+
+    /**
+     * Deletes a file if it exists.
+     *
+     * @param location the location of the file
+     * @return true if the file was deleted, false if there was no such file
+     * @throws IOException if the file can't be deleted
+     */
+    boolean delete(String location) throws IOException;
+
+    /**
+     * Releases the files held open by the storage, the storage can't be used afterwards.
+     *
+     * @throws IOException if the files can't be closed
+     */
+    @Override
+    default void close() throws IOException {
+    }
+
+    /**
+     * Produces the content of a file.
+     */
+    @FunctionalInterface
+    interface ContentWriter {
+        /**
+         * Writes the content of the file.
+         *
+         * @param out the stream to write the content to
+         * @throws IOException if the content can't be written
+         */
+        void writeTo(OutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,56 @@
+package com.socialmedia.app.storage;
+
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Image storage keeping files in memory, for tests and for trying out the application without a writable disk.
+ * The content of the files is lost when the application stops.
+ */
+public class InMemoryImageStorage implements ImageStorage {
+    private final Map<String, StoredFile> files = new ConcurrentHashMap<>();
+
+    @Override
+    public ImageMetadata stat(String location) {
+        var file = files.get(location);
+        return file == null ? null : new ImageMetadata(file.content().length, file.lastModified());
+    }
+
+    @Override
+    public Resource read(String location) throws IOException {
+        var file = files.get(location);
+        if (file == null)
+            throw new NoSuchFileException(location);
+        return new ByteArrayResource(file.content());
+    }
+
+    @Override
+    public void write(String location, ContentWriter writer) throws IOException {
+        var out = new ByteArrayOutputStream();
+        writer.writeTo(out);
+        files.put(location, new StoredFile(out.toByteArray(), Instant.now()));
+    }
+
+    @Override
+    public void move(String source, String target) throws IOException {
+        var file = files.remove(source);
+        if (file == null)
+            throw new NoSuchFileException(source);
+        files.put(target, file);
+    }
+
+    @Override
+    public boolean delete(String location) {
+        return files.remove(location) != null;
+    }
+
+    private record StoredFile(byte[] content, Instant lastModified) {
+    }
+}
@@ -0,0 +1,88 @@
+package com.socialmedia.app.storage;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Image storage keeping files in a directory on the local file system.
+ * Files are spread over two levels of subdirectories named after the first four characters of their location,
+ * e.g. {@code ab/cd/abcd...png}, so no directory grows to millions of entries.
+ * Locations derived from the same content hash, like renditions, end up in the same directory.
+ * Files are served from their path, so they can be written to the network with {@code sendfile}.
+ */
+public class LocalImageStorage implements ImageStorage {
+    private final Path root;
+
+    /**
+     * Constructs a LocalImageStorage keeping its files below the given directory.
+     *
+     * @param root the directory the files are kept in
+     */
+    public LocalImageStorage(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * Resolves the path of the file at a location.
+     *
+     * @param location the location of the file
+     * @return the path of the file
+     */
+    public Path path(String location) {
+        if (location.length() <= 4)
+            return root.resolve(location);
+        return root.resolve(location.substring(0, 2)).resolve(location.substring(2, 4)).resolve(location);
+    }
+
+    @Override
+    public ImageMetadata stat(String location) throws IOException {
+        try {
+            var attributes = Files.readAttributes(path(location), BasicFileAttributes.class);
+            return new ImageMetadata(attributes.size(), attributes.lastModifiedTime().toInstant());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public Resource read(String location) {
+        return new FileSystemResource(path(location));
+    }
+
+    @Override
+    public void write(String location, ContentWriter writer) throws IOException {
+        Path file = path(location);
+        Files.createDirectories(file.getParent());
+        // Written under a temporary name next to the file first, so the file is never read half-written
+        Path temporary = Files.createTempFile(file.getParent(), null, ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temporary))) {
+                writer.writeTo(out);
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    @Override
+    public void move(String source, String target) throws IOException {
+        Path targetPath = path(target);
+        Files.createDirectories(targetPath.getParent());
+        Files.move(path(source), targetPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public boolean delete(String location) throws IOException {
+        return Files.deleteIfExists(path(location));
+    }
+}
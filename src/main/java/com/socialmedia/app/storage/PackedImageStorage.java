@@ -0,0 +1,331 @@
+package com.socialmedia.app.storage;
+
+import org.springframework.core.io.Resource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Image storage appending small files to large segment files, larger files are kept by another storage.
+ * A location is kept by one of the two storages only, decided by the size of its content,
+ * which never changes as locations are named after the content.
+ * <p>
+ * Every segment is memory-mapped once, so reading a packed file is a slice of the mapping, without opening a file.
+ * Files are located by an in-memory index rebuilt from the segments when the storage is opened.
+ * A record is the file location and content, a header with its length, modification time and checksum,
+ * and a flag cleared in place when the file is deleted or replaced. Records torn by a crash fail their checksum and end the segment.
+ * Segments whose live records fall below a ratio of their size are compacted: the live records are appended again
+ * and the segment file is deleted. Readers still holding a slice of a deleted segment keep reading the mapping.
+ */
+public class PackedImageStorage implements ImageStorage {
+    private static final int MAGIC = 0x494d4750;
+    private static final byte LIVE = 1;
+    private static final byte DEAD = 2;
+    private static final int FLAG_OFFSET = 4;
+    private static final int CHECKED_HEADER_OFFSET = 5;
+    private static final int CHECKED_HEADER_LENGTH = 14;
+    private static final int CHECKSUM_OFFSET = 19;
+    private static final int HEADER_LENGTH = 23;
+    private static final String SEGMENT_SUFFIX = ".pack";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxPackedSize;
+    private final double minLiveRatio;
+    private final ImageStorage largeFiles;
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    // Segments, the active segment and the sizes of the segments are only accessed holding the lock
+    private final NavigableMap<Integer, Segment> segments = new TreeMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private Segment active;
+
+    /**
+     * Constructs a PackedImageStorage keeping its segments in the given directory, and opens the existing segments.
+     *
+     * @param directory     the directory the segments are kept in
+     * @param segmentSize   the size of a segment in bytes
+     * @param maxPackedSize the size in bytes up to which files are packed into segments
+     * @param minLiveRatio  the share of a segment taken by live records below which the segment is compacted
+     * @param largeFiles    the storage keeping the files larger than the packed ones
+     * @throws IOException if the segments can't be opened
+     */
+    public PackedImageStorage(Path directory, int segmentSize, int maxPackedSize, double minLiveRatio, ImageStorage largeFiles) throws IOException {
+        if (maxPackedSize > segmentSize / 2)
+            throw new IllegalArgumentException("Packed files must be smaller than half of a segment");
+
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxPackedSize = maxPackedSize;
+        this.minLiveRatio = minLiveRatio;
+        this.largeFiles = largeFiles;
+
+        Files.createDirectories(directory);
+        List<Path> files;
+        try (var stream = Files.list(directory)) {
+            files = stream.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+        for (var file : files) {
+            var name = file.getFileName().toString();
+            var segment = openSegment(Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+            segments.put(segment.id, segment);
+            segment.end = scan(segment, (position, location, keyLength, length, lastModified) ->
+                    put(location, new Entry(segment, position, keyLength, length, lastModified), false));
+        }
+        active = segments.isEmpty() ? openSegment(1) : segments.lastEntry().getValue();
+        segments.put(active.id, active);
+    }
+
+    @Override
+    public ImageMetadata stat(String location) throws IOException {
+        var entry = index.get(location);
+        if (entry == null)
+            return largeFiles.stat(location);
+        return new ImageMetadata(entry.length(), entry.lastModified());
+    }
+
+    @Override
+    public Resource read(String location) throws IOException {
+        var entry = index.get(location);
+        if (entry == null)
+            return largeFiles.read(location);
+        return new ByteBufferResource(entry.content(), "Packed image [" + location + "]");
+    }
+
+    @Override
+    public void write(String location, ContentWriter writer) throws IOException {
+        var out = new ByteArrayOutputStream();
+        writer.writeTo(out);
+        if (out.size() > maxPackedSize)
+            largeFiles.write(location, out::writeTo);
+        else
+            append(location, out.toByteArray(), Instant.now());
+    }
+
+    @Override
+    public void move(String source, String target) throws IOException {
+        lock.lock();
+        try {
+            var entry = index.remove(source);
+            if (entry == null) {
+                largeFiles.move(source, target);
+                return;
+            }
+            // Records can't be renamed in place, a crash before the source is deleted leaves the file at both locations
+            try {
+                append(target, bytes(entry.content()), entry.lastModified());
+            } catch (IOException | RuntimeException e) {
+                index.put(source, entry);
+                throw e;
+            }
+            delete(entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean delete(String location) throws IOException {
+        lock.lock();
+        try {
+            var entry = index.remove(location);
+            if (entry == null)
+                return largeFiles.delete(location);
+            delete(entry);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            for (var segment : segments.values())
+                segment.channel.close();
+        } finally {
+            lock.unlock();
+        }
+        largeFiles.close();
+    }
+
+    private void append(String location, byte[] content, Instant lastModified) throws IOException {
+        lock.lock();
+        try {
+            put(location, appendRecord(location, content, lastModified), true);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Entry appendRecord(String location, byte[] content, Instant lastModified) throws IOException {
+        byte[] key = location.getBytes(StandardCharsets.UTF_8);
+        if (key.length > Short.MAX_VALUE)
+            throw new IllegalArgumentException("Location too long: " + location);
+
+        int recordLength = HEADER_LENGTH + key.length + content.length;
+        if (active.end + recordLength > active.buffer.capacity()) {
+            active = openSegment(active.id + 1);
+            segments.put(active.id, active);
+        }
+
+        var record = ByteBuffer.allocate(recordLength)
+                .putInt(MAGIC)
+                .put(LIVE)
+                .putLong(lastModified.toEpochMilli())
+                .putShort((short) key.length)
+                .putInt(content.length)
+                .putInt(0)
+                .put(key)
+                .put(content)
+                .flip();
+        record.putInt(CHECKSUM_OFFSET, checksum(record, 0, key.length, content.length));
+
+        int position = active.end;
+        while (record.hasRemaining())
+            active.channel.write(record, position + record.position());
+        active.end += recordLength;
+        return new Entry(active, position, key.length, content.length, Instant.ofEpochMilli(lastModified.toEpochMilli()));
+    }
+
+    private void put(String location, Entry entry, boolean compact) throws IOException {
+        entry.segment().live += entry.recordLength();
+        var replaced = index.put(location, entry);
+        if (replaced == null)
+            return;
+        if (compact)
+            delete(replaced);
+        else
+            markDead(replaced);
+    }
+
+    private void delete(Entry entry) throws IOException {
+        markDead(entry);
+        var segment = entry.segment();
+        if (segment != active && segment.live < segment.end * minLiveRatio)
+            compact(segment);
+    }
+
+    private void markDead(Entry entry) throws IOException {
+        // Records of a compacted segment are gone with its file
+        if (!entry.segment().channel.isOpen())
+            return;
+        entry.segment().channel.write(ByteBuffer.wrap(new byte[]{DEAD}), entry.position() + FLAG_OFFSET);
+        entry.segment().live -= entry.recordLength();
+    }
+
+    private void compact(Segment segment) throws IOException {
+        var live = new ArrayList<String>();
+        scan(segment, (position, location, keyLength, length, lastModified) -> {
+            var entry = index.get(location);
+            if (entry != null && entry.segment() == segment && entry.position() == position)
+                live.add(location);
+        });
+        for (var location : live) {
+            var entry = index.get(location);
+            var copy = appendRecord(location, bytes(entry.content()), entry.lastModified());
+            copy.segment().live += copy.recordLength();
+            index.put(location, copy);
+        }
+
+        segments.remove(segment.id);
+        segment.channel.close();
+        Files.delete(segment.path);
+    }
+
+    private Segment openSegment(int id) throws IOException {
+        Path path = directory.resolve(String.format("%010d%s", id, SEGMENT_SUFFIX));
+        var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            // Extended without writing the zeros, the segment only takes the space of the records appended to it
+            if (channel.size() < segmentSize)
+                channel.write(ByteBuffer.wrap(new byte[1]), segmentSize - 1);
+            return new Segment(id, path, channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static int scan(Segment segment, RecordConsumer consumer) throws IOException {
+        var buffer = segment.buffer;
+        int position = 0;
+        while (position + HEADER_LENGTH <= buffer.capacity() && buffer.getInt(position) == MAGIC) {
+            byte flag = buffer.get(position + FLAG_OFFSET);
+            long lastModified = buffer.getLong(position + CHECKED_HEADER_OFFSET);
+            int keyLength = buffer.getShort(position + CHECKED_HEADER_OFFSET + Long.BYTES);
+            int length = buffer.getInt(position + CHECKED_HEADER_OFFSET + Long.BYTES + Short.BYTES);
+            if (keyLength < 0 || length < 0 || (long) position + HEADER_LENGTH + keyLength + length > buffer.capacity()
+                    || buffer.getInt(position + CHECKSUM_OFFSET) != checksum(buffer, position, keyLength, length))
+                break;
+
+            if (flag == LIVE) {
+                var location = StandardCharsets.UTF_8.decode(buffer.slice(position + HEADER_LENGTH, keyLength)).toString();
+                consumer.accept(position, location, keyLength, length, Instant.ofEpochMilli(lastModified));
+            }
+            position += HEADER_LENGTH + keyLength + length;
+        }
+        return position;
+    }
+
+    private static int checksum(ByteBuffer buffer, int position, int keyLength, int length) {
+        // The flag is left out, as it is the only part of a record written again
+        var crc = new CRC32();
+        crc.update(buffer.slice(position + CHECKED_HEADER_OFFSET, CHECKED_HEADER_LENGTH));
+        crc.update(buffer.slice(position + HEADER_LENGTH, keyLength + length));
+        return (int) crc.getValue();
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        var bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    @FunctionalInterface
+    private interface RecordConsumer {
+        void accept(int position, String location, int keyLength, int length, Instant lastModified) throws IOException;
+    }
+
+    private static final class Segment {
+        private final int id;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int end;
+        private long live;
+
+        private Segment(int id, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+
+    private record Entry(Segment segment, int position, int keyLength, int length, Instant lastModified) {
+        private int recordLength() {
+            return HEADER_LENGTH + keyLength + length;
+        }
+
+        private ByteBuffer content() {
+            return segment.buffer.slice(position + HEADER_LENGTH + keyLength, length);
+        }
+    }
+}
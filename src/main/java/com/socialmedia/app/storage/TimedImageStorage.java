@@ -0,0 +1,194 @@
+package com.socialmedia.app.storage;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Image storage recording the latency of every operation of another storage.
+ * Lookups and opened files are published as the {@code images.storage.reads} timer,
+ * writes, moves and deletes as the {@code images.storage.writes} timer, both tagged with the name of the backend.
+ * Opening a file may be lazy, so the time spent reading the content of a file is published separately as the
+ * {@code images.storage.transfers} timer, one sample per stream, without the time spent waiting for the client.
+ * Files the container sends straight from disk with {@code sendfile} are never read by the application and not timed.
+ */
+public class TimedImageStorage implements ImageStorage {
+    private final ImageStorage storage;
+    private final Timer reads;
+    private final Timer writes;
+    private final Timer transfers;
+
+    /**
+     * Constructs a TimedImageStorage recording the operations of the given storage.
+     *
+     * @param storage       the storage performing the operations
+     * @param backend       the name of the storage backend the timers are tagged with
+     * @param meterRegistry the registry the timers are registered with
+     */
+    public TimedImageStorage(ImageStorage storage, String backend, MeterRegistry meterRegistry) {
+        this.storage = storage;
+        this.reads = meterRegistry.timer("images.storage.reads", "backend", backend);
+        this.writes = meterRegistry.timer("images.storage.writes", "backend", backend);
+        this.transfers = meterRegistry.timer("images.storage.transfers", "backend", backend);
+    }
+
+    @Override
+    public ImageMetadata stat(String location) throws IOException {
+        return time(reads, () -> storage.stat(location));
+    }
+
+    @Override
+    public Resource read(String location) throws IOException {
+        return new TimedResource(time(reads, () -> storage.read(location)));
+    }
+
+    @Override
+    public void write(String location, ContentWriter writer) throws IOException {
+        time(writes, () -> {
+            storage.write(location, writer);
+            return null;
+        });
+    }
+
+    @Override
+    public void move(String source, String target) throws IOException {
+        time(writes, () -> {
+            storage.move(source, target);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean delete(String location) throws IOException {
+        return time(writes, () -> storage.delete(location));
+    }
+
+    @Override
+    public void close() throws IOException {
+        storage.close();
+    }
+
+    private static <T> T time(Timer timer, Operation<T> operation) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return operation.run();
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Operation<T> {
+        T run() throws IOException;
+    }
+
+    /**
+     * Resource timing the reads of its content, and otherwise passing everything through to the resource of the storage,
+     * so that files can still be sent with {@code sendfile}.
+     */
+    private final class TimedResource extends AbstractResource {
+        private final Resource resource;
+
+        private TimedResource(Resource resource) {
+            this.resource = resource;
+        }
+
+        @Override
+        public boolean exists() {
+            return resource.exists();
+        }
+
+        @Override
+        public boolean isFile() {
+            return resource.isFile();
+        }
+
+        @Override
+        public File getFile() throws IOException {
+            return resource.getFile();
+        }
+
+        @Override
+        public long contentLength() throws IOException {
+            return resource.contentLength();
+        }
+
+        @Override
+        public long lastModified() throws IOException {
+            return resource.lastModified();
+        }
+
+        @Override
+        public String getFilename() {
+            return resource.getFilename();
+        }
+
+        @Override
+        public String getDescription() {
+            return resource.getDescription();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new TimedInputStream(resource.getInputStream());
+        }
+    }
+
+    /**
+     * Stream adding up the time spent in its reads and recording it once it is closed.
+     */
+    private final class TimedInputStream extends FilterInputStream {
+        private long elapsed;
+        private boolean closed;
+
+        private TimedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            long start = System.nanoTime();
+            try {
+                return super.read();
+            } finally {
+                elapsed += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            long start = System.nanoTime();
+            try {
+                return super.read(bytes, offset, length);
+            } finally {
+                elapsed += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long start = System.nanoTime();
+            try {
+                return super.skip(n);
+            } finally {
+                elapsed += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            if (!closed) {
+                closed = true;
+                transfers.record(elapsed, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.socialmedia.app.util;
+
+import java.util.Locale;
+
+/**
+ * Sizes an image can be downloaded in.
+ * Every size except the original is a rendition scaled down to fit a square of its maximum dimension,
+ * saved next to the original file under the original file name with the name of the size appended.
+ */
+public enum ImageSize {
+    ORIGINAL(Integer.MAX_VALUE),
+    LARGE(1600),
+    MEDIUM(800),
+    THUMBNAIL(200);
+
+    private final int maxDimension;
+
+    ImageSize(int maxDimension) {
+        this.maxDimension = maxDimension;
+    }
+
+    /**
+     * Returns the maximum width and height of images of this size.
+     *
+     * @return the maximum dimension in pixels
+     */
+    public int getMaxDimension() {
+        return maxDimension;
+    }
+
+    /**
+     * Returns the location of the file of this size, e.g. {@code name-thumbnail.png} for {@code name.png}.
+     *
+     * @param location the location of the original file
+     * @return the location of the file of this size
+     */
+    public String location(String location) {
+        if (this == ORIGINAL)
+            return location;
+
+        int extension = location.lastIndexOf('.');
+        return location.substring(0, extension) + '-' + name().toLowerCase(Locale.ROOT) + location.substring(extension);
+    }
+
+    /**
+     * Parses a size from its lowercase name as used in request parameters.
+     *
+     * @param value the name of the size
+     * @return the parsed size
+     * @throws IllegalArgumentException if there is no size with the given name
+     */
+    public static ImageSize fromValue(String value) {
+        return valueOf(value.toUpperCase(Locale.ROOT));
+    }
+}
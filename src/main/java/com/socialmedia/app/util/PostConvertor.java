@@ -3,51 +3,42 @@ package com.socialmedia.app.util;
 import com.socialmedia.app.dto.PostDto;
 import com.socialmedia.app.model.Image;
 import com.socialmedia.app.model.Post;
-import com.socialmedia.app.model.User;
-import org.modelmapper.Converter;
-import org.modelmapper.ModelMapper;
-import org.springframework.stereotype.Component;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingConstants;
+import org.mapstruct.ReportingPolicy;
 
 import java.util.Set;
 
 /**
  * Utility class for converting Post entities to PostDto objects.
+ * The implementation is generated by MapStruct at build time.
  */
-@Component
-public class PostConvertor {
-    private final ModelMapper modelMapper;
-
-    /**
-     * Constructs a PostConvertor and configures the ModelMapper.
-     */
-    public PostConvertor() {
-        this.modelMapper = new ModelMapper();
-
-        Converter<User, String> userToUsernameString = ctx -> ctx.getSource().getUsername();
-
-        Converter<Set<Image>, long[]> imagesSetToLongArray =
-                ctx -> ctx.getSource()
-                        .stream()
-                        .mapToLong(Image::getId)
-                        .toArray();
-
-        modelMapper.createTypeMap(Post.class, PostDto.class)
-                .addMappings(map -> map
-                        .using(userToUsernameString)
-                        .map(Post::getUser, PostDto::setUser)
-                )
-                .addMappings(map -> map
-                        .using(imagesSetToLongArray)
-                        .map(Post::getImages, PostDto::setImages));
-    }
-
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING, unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface PostConvertor {
     /**
      * Converts a Post entity to a PostDto object.
      *
      * @param post the Post entity to convert
      * @return the PostDto object
      */
-    public PostDto convertToDto(Post post) {
-        return modelMapper.map(post, PostDto.class);
+    @Mapping(target = "user", source = "user.username")
+    @Mapping(target = "imageUrls", ignore = true)
+    PostDto convertToDto(Post post);
+
+    /**
+     * Converts the images of a post to their IDs.
+     *
+     * @param images the images of the post
+     * @return the IDs of the images
+     */
+    default long[] imagesToIds(Set<Image> images) {
+        if (images == null)
+            return new long[0];
+
+        return images
+                .stream()
+                .mapToLong(Image::getId)
+                .toArray();
     }
 }
@@ -0,0 +1,46 @@
+package com.socialmedia.app.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Position of a post in a list of posts ordered by creation timestamp and ID in descending order.
+ * Clients receive it as an opaque token and pass it back to continue the list after the post.
+ *
+ * @param createdAt the creation timestamp of the post
+ * @param id        the ID of the post
+ */
+public record PostCursor(Instant createdAt, Long id) {
+    /**
+     * Encodes the cursor as an opaque URL-safe token.
+     *
+     * @return the encoded cursor
+     */
+    public String encode() {
+        String value = createdAt.getEpochSecond() + ":" + createdAt.getNano() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Decodes a cursor from a token created by {@link #encode()}.
+     *
+     * @param token the encoded cursor
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if the token is not a valid cursor
+     */
+    public static PostCursor decode(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII).split(":");
+            if (parts.length != 3)
+                throw new IllegalArgumentException("Malformed cursor: " + token);
+
+            return new PostCursor(
+                    Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1])),
+                    Long.parseLong(parts[2]));
+        } catch (RuntimeException e) {
+            // Out of range timestamps throw DateTimeException or ArithmeticException, which aren't argument errors
+            throw new IllegalArgumentException("Malformed cursor: " + token, e);
+        }
+    }
+}
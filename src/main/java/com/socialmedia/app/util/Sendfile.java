@@ -0,0 +1,59 @@
+package com.socialmedia.app.util;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.IOException;
+
+/**
+ * Hands file regions over to the servlet container to be written with {@code sendfile},
+ * so the bytes go from the page cache to the socket without being copied through the heap.
+ * Only Tomcat supports this, other containers and small regions are written by copying as before.
+ */
+final class Sendfile {
+    private static final String SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String START = "org.apache.tomcat.sendfile.start";
+    private static final String END = "org.apache.tomcat.sendfile.end";
+
+    // Below this size a plain copy is cheaper than setting up sendfile, the same threshold as Tomcat's DefaultServlet
+    private static final long MIN_SIZE = 48 * 1024;
+
+    private Sendfile() {
+    }
+
+    /**
+     * Asks the container to write a region of a file after the response headers.
+     * The caller has to set the Content-Length header of the region and must not write the body itself if this succeeds.
+     *
+     * @param resource      the resource to write
+     * @param start         the position of the first byte of the region
+     * @param end           the position after the last byte of the region
+     * @param outputMessage the response to write the region to
+     * @return true if the container writes the region, false if the caller has to write it
+     * @throws IOException if the file of the resource can't be resolved
+     */
+    static boolean transfer(Resource resource, long start, long end, HttpOutputMessage outputMessage) throws IOException {
+        if (end - start < MIN_SIZE || !resource.isFile() || !(outputMessage instanceof ServletServerHttpResponse))
+            return false;
+
+        HttpServletRequest request = currentRequest();
+        if (request == null || !Boolean.TRUE.equals(request.getAttribute(SUPPORTED)))
+            return false;
+
+        request.setAttribute(FILENAME, resource.getFile().getAbsolutePath());
+        request.setAttribute(START, start);
+        request.setAttribute(END, end);
+        return true;
+    }
+
+    private static HttpServletRequest currentRequest() {
+        return RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes
+                ? attributes.getRequest()
+                : null;
+    }
+}
@@ -0,0 +1,26 @@
+package com.socialmedia.app.util;
+
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.ResourceHttpMessageConverter;
+
+import java.io.IOException;
+
+/**
+ * Writes whole file resources with {@code sendfile} where the container supports it,
+ * other resources are copied to the response as by the default converter.
+ */
+public class SendfileResourceHttpMessageConverter extends ResourceHttpMessageConverter {
+    /**
+     * Writes the content of a resource, the Content-Length header is already set by the default converter.
+     *
+     * @param resource      the resource to write
+     * @param outputMessage the response to write the resource to
+     * @throws IOException if the resource can't be read or written
+     */
+    @Override
+    protected void writeContent(Resource resource, HttpOutputMessage outputMessage) throws IOException {
+        if (!Sendfile.transfer(resource, 0, resource.contentLength(), outputMessage))
+            super.writeContent(resource, outputMessage);
+    }
+}
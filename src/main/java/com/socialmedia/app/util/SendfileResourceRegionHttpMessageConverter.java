@@ -0,0 +1,36 @@
+package com.socialmedia.app.util;
+
+import org.springframework.core.io.support.ResourceRegion;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.ResourceRegionHttpMessageConverter;
+
+import java.io.IOException;
+
+/**
+ * Writes single-range responses of file resources with {@code sendfile} where the container supports it,
+ * other regions and multi-range responses are copied to the response as by the default converter.
+ */
+public class SendfileResourceRegionHttpMessageConverter extends ResourceRegionHttpMessageConverter {
+    /**
+     * Writes a single region of a resource together with its Content-Range and Content-Length headers.
+     *
+     * @param region        the region to write
+     * @param outputMessage the response to write the region to
+     * @throws IOException if the resource can't be read or written
+     */
+    @Override
+    protected void writeResourceRegion(ResourceRegion region, HttpOutputMessage outputMessage) throws IOException {
+        var resource = region.getResource();
+        long start = region.getPosition();
+        long end = start + region.getCount();
+        if (!Sendfile.transfer(resource, start, end, outputMessage)) {
+            super.writeResourceRegion(region, outputMessage);
+            return;
+        }
+
+        HttpHeaders headers = outputMessage.getHeaders();
+        headers.add(HttpHeaders.CONTENT_RANGE, "bytes " + start + '-' + (end - 1) + '/' + resource.contentLength());
+        headers.setContentLength(region.getCount());
+    }
+}
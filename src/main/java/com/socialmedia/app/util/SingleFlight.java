@@ -0,0 +1,86 @@
+package com.socialmedia.app.util;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent loads of the same key into one.
+ * The first caller for a key runs the load on its own thread, callers arriving while it is in flight
+ * wait for it and receive the same result or exception instead of running the load again.
+ * Results are not kept once the load has finished, so later callers start a new load.
+ * Exceptions of the load are passed through to all callers, a caller that gives up waiting gets a {@link TimeoutException}.
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the loaded values
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final long timeout;
+
+    /**
+     * Constructs a SingleFlight with the given timeout.
+     *
+     * @param timeout the maximum time a caller waits for a load started by another caller
+     */
+    public SingleFlight(Duration timeout) {
+        this.timeout = timeout.toNanos();
+    }
+
+    /**
+     * Loads the value of a key, or waits for the load of the key that is already in flight.
+     *
+     * @param key    the key of the value
+     * @param loader the function loading the value
+     * @return the loaded value
+     * @throws TimeoutException if the load of another caller takes longer than the timeout,
+     *                          or the caller is interrupted while waiting for it, keeping the interrupt status set
+     */
+    public V execute(K key, Supplier<V> loader) throws TimeoutException {
+        var future = new CompletableFuture<V>();
+        var existing = inFlight.putIfAbsent(key, future);
+        if (existing != null)
+            return await(existing);
+
+        try {
+            var value = loader.get();
+            future.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * Returns the number of keys that are currently being loaded.
+     *
+     * @return the number of loads in flight
+     */
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    private V await(CompletableFuture<V> future) throws TimeoutException {
+        try {
+            return future.get(timeout, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            // The waiting callers fail with the exception of the load, e.g. a not found response
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            if (e.getCause() instanceof Error cause)
+                throw cause;
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TimeoutException("Interrupted while waiting for a concurrent load");
+        }
+    }
+}
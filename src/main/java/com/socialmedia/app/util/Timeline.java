@@ -0,0 +1,213 @@
+package com.socialmedia.app.util;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+
+/**
+ * Bounded, time-ordered list of post IDs, newest first.
+ * Entries are kept in two parallel primitive arrays so that a timeline of several hundred posts
+ * costs a few kilobytes and no per-entry objects. When the timeline is full, the oldest entries are dropped.
+ */
+public class Timeline {
+    private final long[] postIds;
+    private final long[] timestamps;
+    private int size;
+    private boolean truncated;
+
+    /**
+     * Constructs an empty Timeline with the given capacity.
+     *
+     * @param capacity the maximum number of entries kept in the timeline
+     */
+    public Timeline(int capacity) {
+        this.postIds = new long[capacity];
+        this.timestamps = new long[capacity];
+    }
+
+    /**
+     * Constructs a Timeline with the given capacity, filled with the given entries.
+     *
+     * @param capacity the maximum number of entries kept in the timeline
+     * @param entries  the initial entries of the timeline, newest first and at most as many as the capacity
+     */
+    public Timeline(int capacity, Entries entries) {
+        this(capacity);
+        this.size = entries.postIds().length;
+        this.truncated = !entries.complete();
+        System.arraycopy(entries.postIds(), 0, postIds, 0, size);
+        System.arraycopy(entries.timestamps(), 0, timestamps, 0, size);
+    }
+
+    /**
+     * Converts an instant to the timestamp representation used by the timeline (microseconds since the epoch).
+     *
+     * @param instant the instant to convert
+     * @return the number of microseconds since the epoch
+     */
+    public static long toTimestamp(Instant instant) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, instant);
+    }
+
+    /**
+     * Inserts a post into the timeline at the position given by its timestamp.
+     * Posts that are already present or older than every entry of a full timeline are ignored.
+     *
+     * @param postId    the ID of the post
+     * @param timestamp the creation timestamp of the post, see {@link #toTimestamp(Instant)}
+     */
+    public synchronized void add(long postId, long timestamp) {
+        if (indexOf(postId) >= 0)
+            return;
+
+        int position = 0;
+        while (position < size && isNewer(postIds[position], timestamps[position], postId, timestamp))
+            position++;
+
+        if (size == postIds.length) {
+            truncated = true;
+            if (position == size)
+                return;
+            size--;
+        }
+
+        System.arraycopy(postIds, position, postIds, position + 1, size - position);
+        System.arraycopy(timestamps, position, timestamps, position + 1, size - position);
+        postIds[position] = postId;
+        timestamps[position] = timestamp;
+        size++;
+    }
+
+    /**
+     * Removes a post from the timeline.
+     *
+     * @param postId the ID of the post to remove
+     * @return true if the post was present, false otherwise
+     */
+    public synchronized boolean remove(long postId) {
+        int index = indexOf(postId);
+        if (index < 0)
+            return false;
+
+        System.arraycopy(postIds, index + 1, postIds, index, size - index - 1);
+        System.arraycopy(timestamps, index + 1, timestamps, index, size - index - 1);
+        size--;
+        return true;
+    }
+
+    /**
+     * Returns the post IDs of a page of the timeline.
+     * The result is empty if the page reaches past entries that were dropped from a full timeline,
+     * in which case the caller has to fall back to another source.
+     *
+     * @param offset the index of the first entry of the page
+     * @param limit  the maximum number of entries in the page
+     * @return an optional array of post IDs, newest first
+     */
+    public synchronized Optional<long[]> page(long offset, int limit) {
+        if (truncated && offset + limit > size)
+            return Optional.empty();
+        if (offset >= size)
+            return Optional.of(new long[0]);
+
+        int from = (int) offset;
+        return Optional.of(Arrays.copyOfRange(postIds, from, Math.min(size, from + limit)));
+    }
+
+    /**
+     * Returns a copy of the newest entries of the timeline.
+     *
+     * @param limit the maximum number of entries to return
+     * @return the newest entries, newest first
+     */
+    public synchronized Entries head(int limit) {
+        int count = Math.min(size, limit);
+        return new Entries(
+                Arrays.copyOf(postIds, count),
+                Arrays.copyOf(timestamps, count),
+                !truncated && count == size);
+    }
+
+    /**
+     * Merges runs of entries into a single run, newest first, skipping posts contained in several runs.
+     * A post has the same timestamp in every run, so its copies are merged next to each other and only the first is kept.
+     * The runs are merged with a heap holding the next entry of every run, so building a run of n entries
+     * from k runs takes O(n log k) time. Merging stops early when an incomplete run is used up,
+     * as its older entries could belong in between the following ones.
+     *
+     * @param runs  the runs of entries, each newest first
+     * @param limit the maximum number of entries in the merged run
+     * @return the merged run
+     */
+    public static Entries merge(List<Entries> runs, int limit) {
+        int[] positions = new int[runs.size()];
+        var heap = new PriorityQueue<Integer>(Math.max(1, runs.size()), (a, b) -> {
+            var runA = runs.get(a);
+            var runB = runs.get(b);
+            int byTimestamp = Long.compare(runB.timestamps()[positions[b]], runA.timestamps()[positions[a]]);
+            return byTimestamp != 0 ? byTimestamp : Long.compare(runB.postIds()[positions[b]], runA.postIds()[positions[a]]);
+        });
+        for (int run = 0; run < runs.size(); run++) {
+            if (runs.get(run).postIds().length > 0)
+                heap.add(run);
+            else if (!runs.get(run).complete())
+                return new Entries(new long[0], new long[0], false);
+        }
+
+        long[] mergedPostIds = new long[limit];
+        long[] mergedTimestamps = new long[limit];
+        int count = 0;
+        while (count < limit && !heap.isEmpty()) {
+            int run = heap.poll();
+            var entries = runs.get(run);
+            int position = positions[run]++;
+
+            if (count == 0 || mergedPostIds[count - 1] != entries.postIds()[position]) {
+                mergedPostIds[count] = entries.postIds()[position];
+                mergedTimestamps[count] = entries.timestamps()[position];
+                count++;
+            }
+
+            if (positions[run] < entries.postIds().length)
+                heap.add(run);
+            else if (!entries.complete())
+                return new Entries(Arrays.copyOf(mergedPostIds, count), Arrays.copyOf(mergedTimestamps, count), false);
+        }
+
+        return new Entries(Arrays.copyOf(mergedPostIds, count), Arrays.copyOf(mergedTimestamps, count), heap.isEmpty());
+    }
+
+    /**
+     * Returns the number of entries in the timeline.
+     *
+     * @return the number of entries
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    private int indexOf(long postId) {
+        for (int i = 0; i < size; i++) {
+            if (postIds[i] == postId)
+                return i;
+        }
+        return -1;
+    }
+
+    private static boolean isNewer(long postId, long timestamp, long otherPostId, long otherTimestamp) {
+        return timestamp > otherTimestamp || (timestamp == otherTimestamp && postId > otherPostId);
+    }
+
+    /**
+     * Copy of a run of timeline entries, newest first.
+     *
+     * @param postIds    the IDs of the posts
+     * @param timestamps the creation timestamps of the posts, see {@link #toTimestamp(Instant)}
+     * @param complete   true if no older entries exist beyond the last entry of the run
+     */
+    public record Entries(long[] postIds, long[] timestamps, boolean complete) {
+    }
+}
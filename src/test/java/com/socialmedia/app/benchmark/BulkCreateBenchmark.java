@@ -0,0 +1,65 @@
+package com.socialmedia.app.benchmark;
+
+import com.socialmedia.app.model.Post;
+import com.socialmedia.app.model.User;
+import com.socialmedia.app.repository.UserRepository;
+import com.socialmedia.app.service.PostService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares creating posts one at a time through the single-post path with creating them through the bulk path,
+ * which looks up the author once and inserts the posts in JDBC batches with IDs allocated in blocks.
+ * Runs against the configured database and only when started with {@code -Dbenchmark=true}.
+ * Only meaningful against PostgreSQL, e.g. the database service of docker-compose.yml, as the batched inserts
+ * are rewritten into multi-row statements by its driver ({@code reWriteBatchedInserts}).
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class BulkCreateBenchmark {
+    private static final int POSTS = 5_000;
+    private static final int WARMUP_ROUNDS = 2;
+    private static final int ROUNDS = 5;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PostService postService;
+
+    @Test
+    void createPosts() {
+        userRepository.save(new User("bench-importer", "bench-importer@mail.com", "password"));
+        Principal principal = () -> "bench-importer";
+
+        report("single", () -> posts().forEach(post -> postService.createPost(post, principal)));
+        report("bulk", () -> postService.createPosts(posts(), principal));
+    }
+
+    private static List<Post> posts() {
+        var posts = new ArrayList<Post>(POSTS);
+        for (int i = 0; i < POSTS; i++)
+            posts.add(new Post("Imported post " + i, "Lorem ipsum dolor sit amet"));
+        return posts;
+    }
+
+    private static void report(String name, Runnable round) {
+        for (int i = 0; i < WARMUP_ROUNDS; i++)
+            round.run();
+
+        long nanos = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            round.run();
+            nanos += System.nanoTime() - start;
+        }
+
+        System.out.printf("%-6s posts=%d %.0f posts/s%n", name, POSTS, (double) POSTS * ROUNDS / (nanos / 1e9));
+    }
+}
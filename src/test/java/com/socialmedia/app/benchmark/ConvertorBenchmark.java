@@ -0,0 +1,99 @@
+package com.socialmedia.app.benchmark;
+
+import com.socialmedia.app.dto.PostDto;
+import com.socialmedia.app.model.Image;
+import com.socialmedia.app.model.Post;
+import com.socialmedia.app.model.User;
+import com.socialmedia.app.util.PostConvertor;
+import com.socialmedia.app.util.PostConvertorImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.modelmapper.Converter;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput and the allocations per converted DTO of the generated post convertor
+ * with the reflective ModelMapper configuration it replaced.
+ * Runs only when started with {@code -Dbenchmark=true}, the allocations are reported as {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConvertorBenchmark {
+    private final ModelMapper modelMapper = modelMapper();
+    private final PostConvertor postConvertor = new PostConvertorImpl();
+    private Post post;
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void convertors() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ConvertorBenchmark.class.getName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+
+    @Setup
+    public void setUp() {
+        post = new Post("Lorem ipsum", "Dolor sit amet, consectetur adipiscing elit");
+        post.setId(1L);
+        post.setUser(new User("author", "author@mail.com", "password"));
+        post.setImages(new LinkedHashSet<>());
+        for (long i = 1; i <= 3; i++) {
+            var image = new Image(i + ".png", "image/png");
+            ReflectionTestUtils.setField(image, "id", i);
+            post.getImages().add(image);
+        }
+
+        // Both sides have to produce the same DTOs for the comparison to mean anything
+        var expectedPost = modelMapper.map(post, PostDto.class);
+        var actualPost = postConvertor.convertToDto(post);
+        if (!expectedPost.equals(actualPost)
+                || !Objects.equals(expectedPost.getUser(), actualPost.getUser())
+                || !Arrays.equals(expectedPost.getImages(), actualPost.getImages()))
+            throw new IllegalStateException("Generated convertor doesn't produce the same DTOs as ModelMapper");
+    }
+
+    @Benchmark
+    public PostDto postModelMapper() {
+        return modelMapper.map(post, PostDto.class);
+    }
+
+    @Benchmark
+    public PostDto postGenerated() {
+        return postConvertor.convertToDto(post);
+    }
+
+    /**
+     * Creates the ModelMapper configuration previously used by the post convertor.
+     *
+     * @return the configured ModelMapper
+     */
+    private static ModelMapper modelMapper() {
+        var modelMapper = new ModelMapper();
+
+        Converter<User, String> userToUsernameString = ctx -> ctx.getSource().getUsername();
+        Converter<Set<Image>, long[]> imagesSetToLongArray =
+                ctx -> ctx.getSource().stream().mapToLong(Image::getId).toArray();
+        modelMapper.createTypeMap(Post.class, PostDto.class)
+                .addMappings(map -> map.using(userToUsernameString).map(Post::getUser, PostDto::setUser))
+                .addMappings(map -> map.using(imagesSetToLongArray).map(Post::getImages, PostDto::setImages));
+
+        return modelMapper;
+    }
+}
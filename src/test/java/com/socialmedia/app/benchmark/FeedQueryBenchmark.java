@@ -0,0 +1,101 @@
+package com.socialmedia.app.benchmark;
+
+import com.socialmedia.app.model.Post;
+import com.socialmedia.app.model.User;
+import com.socialmedia.app.repository.PostRepository;
+import com.socialmedia.app.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Compares the feed query that binds the materialised following set as an IN list
+ * with the query that joins the follow table in the database, for a user following 10 000 accounts.
+ * Runs against the configured database and only when started with {@code -Dbenchmark=true}.
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class FeedQueryBenchmark {
+    private static final int FOLLOWED_USERS = 10_000;
+    private static final int POSTS_PER_USER = 2;
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int ITERATIONS = 20;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void feedQuery() {
+        var viewerId = seed();
+        var pageable = PageRequest.of(0, 20, Sort.Direction.DESC, "createdAt", "id");
+
+        report("IN list", () -> transactionTemplate.execute(status -> {
+            var viewer = userRepository.findById(viewerId).orElseThrow();
+            return entityManager
+                    .createQuery("select p from Post p where p.user in :users order by p.createdAt desc, p.id desc", Post.class)
+                    .setParameter("users", viewer.getFollowing())
+                    .setMaxResults(pageable.getPageSize())
+                    .getResultList();
+        }));
+        report("follow join", () -> postRepository.findFeed(viewerId, pageable).getContent());
+    }
+
+    private Long seed() {
+        return transactionTemplate.execute(status -> {
+            var authors = new ArrayList<User>(FOLLOWED_USERS);
+            for (int i = 0; i < FOLLOWED_USERS; i++)
+                authors.add(new User("bench-author-" + i, "bench-author-" + i + "@mail.com", "password"));
+            userRepository.saveAll(authors);
+
+            var posts = new ArrayList<Post>(FOLLOWED_USERS * POSTS_PER_USER);
+            for (var author : authors) {
+                for (int i = 0; i < POSTS_PER_USER; i++) {
+                    var post = new Post("Benchmark post " + i, "Lorem ipsum");
+                    post.setUser(author);
+                    posts.add(post);
+                }
+            }
+            postRepository.saveAll(posts);
+
+            var viewer = new User("bench-viewer", "bench-viewer@mail.com", "password");
+            viewer.setFollowing(new HashSet<>(authors));
+            return userRepository.save(viewer).getId();
+        });
+    }
+
+    private static void report(String name, Supplier<List<?>> query) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++)
+            query.get();
+
+        long[] nanos = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            query.get();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+
+        System.out.printf("%-12s following=%d median=%.2f ms p95=%.2f ms%n", name, FOLLOWED_USERS,
+                nanos[ITERATIONS / 2] / 1e6, nanos[(int) (ITERATIONS * 0.95) - 1] / 1e6);
+    }
+}
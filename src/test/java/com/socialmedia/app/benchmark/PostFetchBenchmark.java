@@ -0,0 +1,76 @@
+package com.socialmedia.app.benchmark;
+
+import com.socialmedia.app.model.Image;
+import com.socialmedia.app.model.Post;
+import com.socialmedia.app.model.User;
+import com.socialmedia.app.repository.ImageRepository;
+import com.socialmedia.app.repository.PostRepository;
+import com.socialmedia.app.repository.UserRepository;
+import com.socialmedia.app.service.PostService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.security.Principal;
+
+/**
+ * Counts the SQL statements run by the post read paths, which fetch the author and images with the posts,
+ * so the count of a request doesn't grow with the number of posts it reads.
+ * Runs against the configured database and only when started with {@code -Dbenchmark=true}.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PostFetchBenchmark {
+    private static final int POSTS = 6;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private ImageRepository imageRepository;
+
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void statementsPerRequest() {
+        var author = userRepository.save(new User("bench-author", "bench-author@mail.com", "password"));
+        var reader = userRepository.save(new User("bench-reader", "bench-reader@mail.com", "password"));
+        userRepository.addFollowing(reader.getId(), author.getId());
+
+        Long postId = null;
+        for (int i = 0; i < POSTS; i++) {
+            var post = new Post("Post " + i, "Lorem ipsum dolor sit amet");
+            post.setUser(author);
+            postId = postRepository.save(post).getId();
+
+            var image = new Image("bench-" + i + ".png", "image/png");
+            image.setPost(post);
+            imageRepository.save(image);
+        }
+
+        Long singlePostId = postId;
+        Principal principal = () -> "bench-reader";
+        var statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        report(statistics, "feed page", () -> postService.getUserFeed(principal, null, POSTS));
+        report(statistics, "user posts", () -> postService.getPostsByUsername("bench-author"));
+        report(statistics, "single post", () -> postService.getPostById(singlePostId));
+    }
+
+    private static void report(Statistics statistics, String name, Runnable request) {
+        statistics.clear();
+        request.run();
+
+        System.out.printf("%-11s posts=%d statements=%d%n", name, POSTS, statistics.getPrepareStatementCount());
+    }
+}
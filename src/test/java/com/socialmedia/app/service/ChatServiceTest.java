@@ -1,13 +1,13 @@
 package com.socialmedia.app.service;
 
 import com.socialmedia.app.dto.ChatDto;
+import com.socialmedia.app.dto.MessageDto;
 import com.socialmedia.app.model.Chat;
 import com.socialmedia.app.model.Message;
 import com.socialmedia.app.model.User;
 import com.socialmedia.app.repository.ChatRepository;
 import com.socialmedia.app.repository.MessageRepository;
 import com.socialmedia.app.repository.UserRepository;
-import com.socialmedia.app.util.ChatConvertor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -17,6 +17,8 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.security.Principal;
+import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -31,8 +33,6 @@ class ChatServiceTest {
     @Mock
     private UserRepository userRepository;
     @Mock
-    private ChatConvertor chatConvertor;
-    @Mock
     private Principal principal;
 
     private ChatService chatService;
@@ -40,37 +40,41 @@ class ChatServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        chatService = new ChatService(chatRepository, messageRepository, userRepository, chatConvertor);
+        chatService = new ChatService(chatRepository, messageRepository, userRepository, Duration.ofSeconds(5));
     }
 
     @Test
     void getChatWithUser_ChatExists_ReturnsChatDto() {
         // Arrange
         String username = "otherUser";
-        Chat chat = new Chat();
-        ChatDto chatDto = new ChatDto();
-        when(chatRepository.findByUser1_UsernameAndUser2_Username(principal.getName(), username)).thenReturn(Optional.of(chat));
-        when(chatConvertor.convertToDto(chat)).thenReturn(chatDto);
+        ChatDto chatDto = new ChatDto(1L, "testUser", username);
+        MessageDto messageDto = new MessageDto(2L, "Hello!", username, 1L, null);
+        when(principal.getName()).thenReturn("testUser");
+        when(chatRepository.findDtoByUsernames(principal.getName(), username)).thenReturn(Optional.of(chatDto));
+        when(messageRepository.findDtosByChatId(1L)).thenReturn(List.of(messageDto));
 
         // Act
         ChatDto result = chatService.getChatWithUser(username, principal);
 
         // Assert
         assertEquals(chatDto, result);
-        verify(chatRepository).findByUser1_UsernameAndUser2_Username(principal.getName(), username);
-        verify(chatConvertor).convertToDto(chat);
+        assertEquals(1, result.getMessage().size());
+        assertTrue(result.getMessage().contains(messageDto));
+        verify(chatRepository).findDtoByUsernames(principal.getName(), username);
     }
 
     @Test
     void getChatWithUser_ChatNotExists_ThrowsException() {
         // Arrange
         String username = "otherUser";
-        when(chatRepository.findByUser1_UsernameAndUser2_Username(principal.getName(), username)).thenReturn(Optional.empty());
+        when(principal.getName()).thenReturn("testUser");
+        when(chatRepository.findDtoByUsernames(principal.getName(), username)).thenReturn(Optional.empty());
+        when(chatRepository.findDtoByUsernames(username, principal.getName())).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(ResponseStatusException.class, () -> chatService.getChatWithUser(username, principal));
-        verify(chatRepository).findByUser1_UsernameAndUser2_Username(principal.getName(), username);
-        verifyNoMoreInteractions(chatConvertor);
+        verify(chatRepository).findDtoByUsernames(principal.getName(), username);
+        verifyNoInteractions(messageRepository);
     }
 
     @Test
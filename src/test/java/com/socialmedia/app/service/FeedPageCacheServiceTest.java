@@ -0,0 +1,139 @@
+package com.socialmedia.app.service;
+
+import com.socialmedia.app.dto.PostDto;
+import com.socialmedia.app.event.FollowingChangedEvent;
+import com.socialmedia.app.event.PostCreatedEvent;
+import com.socialmedia.app.event.PostUpdatedEvent;
+import com.socialmedia.app.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FeedPageCacheServiceTest {
+    @Mock
+    private UserRepository userRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private FeedPageCacheService feedPageCacheService;
+
+    private final AtomicInteger renders = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        feedPageCacheService = new FeedPageCacheService(new FollowerService(userRepository, 10), 2, 100, Duration.ofMinutes(1), meterRegistry);
+    }
+
+    @Test
+    void getPage_PageCached_ReturnsCachedPageAndCountsHit() {
+        // Arrange
+        var pageable = PageRequest.of(0, 3);
+        var first = feedPageCacheService.getPage(1L, pageable, this::render);
+
+        // Act
+        var second = feedPageCacheService.getPage(1L, pageable, this::render);
+
+        // Assert
+        assertSame(first, second);
+        assertEquals(1, renders.get());
+        assertEquals(1.0, meterRegistry.counter("feed.page.cache.requests", "result", "hit").count());
+        assertEquals(1.0, meterRegistry.counter("feed.page.cache.requests", "result", "miss").count());
+    }
+
+    @Test
+    void getPage_PageBeyondCachedPages_RendersPageEveryTime() {
+        // Arrange
+        var pageable = PageRequest.of(2, 3);
+
+        // Act
+        feedPageCacheService.getPage(1L, pageable, this::render);
+        feedPageCacheService.getPage(1L, pageable, this::render);
+
+        // Assert
+        assertEquals(2, renders.get());
+    }
+
+    @Test
+    void onPostCreated_FollowerPageCached_RendersPageAgain() {
+        // Arrange
+        var pageable = PageRequest.of(0, 3);
+        when(userRepository.findFollowerIdsById(2L)).thenReturn(List.of(1L));
+        feedPageCacheService.getPage(1L, pageable, this::render);
+
+        // Act
+        feedPageCacheService.onPostCreated(new PostCreatedEvent(10L, 2L, Instant.now()));
+        feedPageCacheService.getPage(1L, pageable, this::render);
+
+        // Assert
+        assertEquals(2, renders.get());
+    }
+
+    @Test
+    void onPostUpdated_AuthorNotFollowed_KeepsCachedPage() {
+        // Arrange
+        var pageable = PageRequest.of(0, 3);
+        when(userRepository.findFollowerIdsById(2L)).thenReturn(List.of(3L));
+        feedPageCacheService.getPage(1L, pageable, this::render);
+
+        // Act
+        feedPageCacheService.onPostUpdated(new PostUpdatedEvent(10L, 2L));
+        feedPageCacheService.getPage(1L, pageable, this::render);
+
+        // Assert
+        assertEquals(1, renders.get());
+    }
+
+    @Test
+    void onPostCreated_PulledAuthorFollowedByCachedUser_RendersPageAgainWithoutFollowerLookup() {
+        // Arrange
+        var pageable = PageRequest.of(0, 3);
+        when(userRepository.findFollowingIdsByIdAndFollowerCountAtLeast(1L, 10)).thenReturn(List.of(2L));
+        when(userRepository.findFollowerCountById(2L)).thenReturn(10L);
+        feedPageCacheService.getPage(1L, pageable, this::render);
+        feedPageCacheService.getPage(3L, pageable, this::render);
+
+        // Act
+        feedPageCacheService.onPostCreated(new PostCreatedEvent(10L, 2L, Instant.now()));
+        feedPageCacheService.getPage(1L, pageable, this::render);
+        feedPageCacheService.getPage(3L, pageable, this::render);
+
+        // Assert
+        assertEquals(3, renders.get());
+        verify(userRepository, never()).findFollowerIdsById(any());
+    }
+
+    @Test
+    void onFollowingChanged_PageCached_RendersPageAgain() {
+        // Arrange
+        var pageable = PageRequest.of(0, 3);
+        feedPageCacheService.getPage(1L, pageable, this::render);
+
+        // Act
+        feedPageCacheService.onFollowingChanged(new FollowingChangedEvent(1L, 2L));
+        feedPageCacheService.getPage(1L, pageable, this::render);
+
+        // Assert
+        assertEquals(2, renders.get());
+        verify(userRepository, never()).findFollowerIdsById(any());
+    }
+
+    private List<PostDto> render() {
+        renders.incrementAndGet();
+        return List.of(new PostDto());
+    }
+}
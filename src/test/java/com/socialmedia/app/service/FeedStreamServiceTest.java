@@ -0,0 +1,177 @@
+package com.socialmedia.app.service;
+
+import com.socialmedia.app.dto.CursorPageDto;
+import com.socialmedia.app.dto.PostDto;
+import com.socialmedia.app.event.PostCreatedEvent;
+import com.socialmedia.app.event.PostsCreatedEvent;
+import com.socialmedia.app.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FeedStreamServiceTest {
+    @Mock
+    private PostService postService;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private FeedStreamService feedStreamService;
+
+    @BeforeEach
+    void setUp() {
+        feedStreamService = new FeedStreamService(postService, userRepository, new FollowerService(userRepository, 10), Duration.ofMinutes(1), 1, 1);
+    }
+
+    @Test
+    void openStream_UserExists_WritesInitialFeedPage() {
+        // Arrange
+        Principal principal = mock(Principal.class);
+        when(principal.getName()).thenReturn("testUser");
+        when(userRepository.findIdByUsername("testUser")).thenReturn(Optional.of(1L));
+        when(postService.getUserFeed(principal, null, 3)).thenReturn(new CursorPageDto<>(List.of(new PostDto()), null));
+
+        // Act
+        var result = feedStreamService.openStream(principal, 3);
+
+        // Assert
+        assertNotNull(result);
+        verify(postService, times(1)).getUserFeed(principal, null, 3);
+    }
+
+    @Test
+    void openStream_UserNotFound_ThrowsException() {
+        // Arrange
+        Principal principal = mock(Principal.class);
+        when(principal.getName()).thenReturn("testUser");
+        when(userRepository.findIdByUsername("testUser")).thenReturn(Optional.empty());
+
+        // Act & Assert
+        var exception = assertThrows(ResponseStatusException.class, () -> feedStreamService.openStream(principal, 3));
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+        verifyNoInteractions(postService);
+    }
+
+    @Test
+    void onPostCreated_NoOpenStreams_DoesNotLoadPost() {
+        // Act
+        feedStreamService.onPostCreated(new PostCreatedEvent(10L, 2L, Instant.now()));
+
+        // Assert
+        verifyNoInteractions(userRepository);
+        verifyNoInteractions(postService);
+    }
+
+    @Test
+    void onPostCreated_FollowerHasOpenStream_LoadsPostOnce() {
+        // Arrange
+        Principal principal = mock(Principal.class);
+        when(principal.getName()).thenReturn("testUser");
+        when(userRepository.findIdByUsername("testUser")).thenReturn(Optional.of(1L));
+        when(postService.getUserFeed(principal, null, 3)).thenReturn(new CursorPageDto<>(List.of(), null));
+        when(userRepository.findFollowerIdsById(2L)).thenReturn(List.of(1L, 3L));
+        when(postService.getPostById(10L)).thenReturn(new PostDto());
+        feedStreamService.openStream(principal, 3);
+
+        // Act
+        feedStreamService.onPostCreated(new PostCreatedEvent(10L, 2L, Instant.now()));
+
+        // Assert
+        verify(postService, times(1)).getPostById(10L);
+    }
+
+    @Test
+    void onPostCreated_NoFollowerHasOpenStream_DoesNotLoadPost() {
+        // Arrange
+        Principal principal = mock(Principal.class);
+        when(principal.getName()).thenReturn("testUser");
+        when(userRepository.findIdByUsername("testUser")).thenReturn(Optional.of(1L));
+        when(postService.getUserFeed(principal, null, 3)).thenReturn(new CursorPageDto<>(List.of(), null));
+        when(userRepository.findFollowerIdsById(2L)).thenReturn(List.of(3L));
+        feedStreamService.openStream(principal, 3);
+
+        // Act
+        feedStreamService.onPostCreated(new PostCreatedEvent(10L, 2L, Instant.now()));
+
+        // Assert
+        verify(postService, never()).getPostById(any());
+    }
+
+    @Test
+    void onPostCreated_PulledAuthorFollowedByOpenStream_ChecksOnlyOpenStreams() {
+        // Arrange
+        Principal principal = mock(Principal.class);
+        when(principal.getName()).thenReturn("testUser");
+        when(userRepository.findIdByUsername("testUser")).thenReturn(Optional.of(1L));
+        when(postService.getUserFeed(principal, null, 3)).thenReturn(new CursorPageDto<>(List.of(), null));
+        when(userRepository.findFollowerCountById(2L)).thenReturn(10L);
+        when(userRepository.findFollowerIdsByIdAndFollowerIdIn(2L, List.of(1L))).thenReturn(List.of(1L));
+        when(postService.getPostById(10L)).thenReturn(new PostDto());
+        feedStreamService.openStream(principal, 3);
+
+        // Act
+        feedStreamService.onPostCreated(new PostCreatedEvent(10L, 2L, Instant.now()));
+
+        // Assert
+        verify(postService, times(1)).getPostById(10L);
+        verify(userRepository, never()).findFollowerIdsById(any());
+    }
+
+    @Test
+    void onPostsCreated_FollowerHasOpenStream_LoadsPostsInOneRead() {
+        // Arrange
+        Principal principal = mock(Principal.class);
+        when(principal.getName()).thenReturn("testUser");
+        when(userRepository.findIdByUsername("testUser")).thenReturn(Optional.of(1L));
+        when(postService.getUserFeed(principal, null, 3)).thenReturn(new CursorPageDto<>(List.of(), null));
+        when(userRepository.findFollowerIdsById(2L)).thenReturn(List.of(1L));
+        when(postService.getPostsByIds(new long[]{10L, 11L})).thenReturn(List.of(new PostDto(), new PostDto()));
+        feedStreamService.openStream(principal, 3);
+
+        // Act
+        feedStreamService.onPostsCreated(new PostsCreatedEvent(2L, List.of(
+                new PostCreatedEvent(10L, 2L, Instant.now()),
+                new PostCreatedEvent(11L, 2L, Instant.now()))));
+
+        // Assert
+        verify(postService, times(1)).getPostsByIds(new long[]{10L, 11L});
+        verify(postService, never()).getPostById(any());
+    }
+
+    @Test
+    void onPostsCreated_MorePostsThanQueueCapacity_ClosesStream() {
+        // Arrange
+        Principal principal = mock(Principal.class);
+        when(principal.getName()).thenReturn("testUser");
+        when(userRepository.findIdByUsername("testUser")).thenReturn(Optional.of(1L));
+        when(postService.getUserFeed(principal, null, 3)).thenReturn(new CursorPageDto<>(List.of(), null));
+        when(userRepository.findFollowerIdsById(2L)).thenReturn(List.of(1L));
+        when(postService.getPostsByIds(new long[]{10L, 11L})).thenReturn(List.of(new PostDto(), new PostDto()));
+        feedStreamService.openStream(principal, 3);
+
+        // Act
+        feedStreamService.onPostsCreated(new PostsCreatedEvent(2L, List.of(
+                new PostCreatedEvent(10L, 2L, Instant.now()),
+                new PostCreatedEvent(11L, 2L, Instant.now()))));
+        feedStreamService.onPostCreated(new PostCreatedEvent(12L, 2L, Instant.now()));
+
+        // Assert
+        verify(userRepository, times(1)).findFollowerIdsById(2L);
+        verify(postService, never()).getPostById(any());
+    }
+}
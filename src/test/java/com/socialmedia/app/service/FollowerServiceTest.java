@@ -0,0 +1,74 @@
+package com.socialmedia.app.service;
+
+import com.socialmedia.app.event.PostCreatedEvent;
+import com.socialmedia.app.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FollowerServiceTest {
+    @Mock
+    private UserRepository userRepository;
+
+    private FollowerService followerService;
+
+    @BeforeEach
+    void setUp() {
+        followerService = new FollowerService(userRepository, 10);
+    }
+
+    @Test
+    void getFollowers_SameEvent_LooksUpFollowersOnce() {
+        // Arrange
+        var event = new PostCreatedEvent(10L, 2L, Instant.now());
+        when(userRepository.findFollowerCountById(2L)).thenReturn(2L);
+        when(userRepository.findFollowerIdsById(2L)).thenReturn(List.of(1L, 3L));
+
+        // Act
+        var first = followerService.getFollowers(event, 2L);
+        var second = followerService.getFollowers(event, 2L);
+
+        // Assert
+        assertFalse(first.pulled());
+        assertEquals(List.of(1L, 3L), second.ids());
+        verify(userRepository, times(1)).findFollowerIdsById(2L);
+    }
+
+    @Test
+    void getFollowers_EqualEvents_LooksUpFollowersForEach() {
+        // Arrange
+        var createdAt = Instant.now();
+        when(userRepository.findFollowerIdsById(2L)).thenReturn(List.of(1L));
+
+        // Act
+        followerService.getFollowers(new PostCreatedEvent(10L, 2L, createdAt), 2L);
+        followerService.getFollowers(new PostCreatedEvent(10L, 2L, createdAt), 2L);
+
+        // Assert
+        verify(userRepository, times(2)).findFollowerIdsById(2L);
+    }
+
+    @Test
+    void getFollowers_PulledAuthor_DoesNotLoadFollowers() {
+        // Arrange
+        when(userRepository.findFollowerCountById(2L)).thenReturn(10L);
+
+        // Act
+        var result = followerService.getFollowers(new PostCreatedEvent(10L, 2L, Instant.now()), 2L);
+
+        // Assert
+        assertTrue(result.pulled());
+        assertTrue(result.ids().isEmpty());
+        verify(userRepository, never()).findFollowerIdsById(any());
+    }
+}
@@ -0,0 +1,136 @@
+package com.socialmedia.app.service;
+
+import com.socialmedia.app.event.PostsPurgedEvent;
+import com.socialmedia.app.storage.ImageMetadata;
+import com.socialmedia.app.util.ImageSize;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.unit.DataSize;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+class ImageCacheServiceTest {
+    private static final Instant LAST_MODIFIED = Instant.parse("2023-06-01T10:15:30Z");
+
+    @TempDir
+    private Path directory;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ImageCacheService imageCacheService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        imageCacheService = new ImageCacheService(DataSize.ofBytes(1000), DataSize.ofBytes(100), 100, Duration.ofMinutes(1), meterRegistry);
+    }
+
+    @Test
+    void putImage_LocalFileRequestedAgain_CachesContentOffHeap() throws IOException {
+        // Arrange
+        Path file = directory.resolve("image.png");
+        Files.write(file, new byte[]{1, 2, 3});
+        imageCacheService.putImage(1L, ImageSize.ORIGINAL, 10L, "image/png", "image.png",
+                new ImageMetadata(3, LAST_MODIFIED), new FileSystemResource(file));
+
+        // Act
+        var result = imageCacheService.putImage(1L, ImageSize.ORIGINAL, 10L, "image/png", "image.png",
+                new ImageMetadata(3, LAST_MODIFIED), new FileSystemResource(file));
+
+        // Assert
+        assertTrue(result.content().isDirect());
+        assertTrue(result.content().isReadOnly());
+        assertArrayEquals(new byte[]{1, 2, 3}, result.resource().getContentAsByteArray());
+        assertSame(result, imageCacheService.getImage(1L, ImageSize.ORIGINAL));
+        assertNull(imageCacheService.getImage(1L, ImageSize.THUMBNAIL));
+    }
+
+    @Test
+    void putImage_FirstRequest_DoesNotReadFile() throws IOException {
+        // Arrange
+        var resource = mock(Resource.class);
+
+        // Act
+        var result = imageCacheService.putImage(1L, ImageSize.ORIGINAL, 10L, "image/png", "image.png",
+                new ImageMetadata(3, LAST_MODIFIED), resource);
+
+        // Assert
+        assertNull(result);
+        assertNull(imageCacheService.getImage(1L, ImageSize.ORIGINAL));
+        verifyNoInteractions(resource);
+    }
+
+    @Test
+    void putImage_ImageTooLarge_DoesNotCache() throws IOException {
+        // Act
+        var result = putImage(1L, 10L, 101);
+
+        // Assert
+        assertNull(result);
+        assertNull(imageCacheService.getImage(1L, ImageSize.ORIGINAL));
+    }
+
+    @Test
+    void putImage_FileShorterThanItsSize_Throws() throws IOException {
+        // Arrange
+        imageCacheService.putImage(1L, ImageSize.ORIGINAL, 10L, "image/png", "image.png",
+                new ImageMetadata(10, LAST_MODIFIED), new ByteArrayResource(new byte[5]));
+
+        // Act & Assert
+        assertThrows(EOFException.class, () -> imageCacheService.putImage(1L, ImageSize.ORIGINAL, 10L, "image/png", "image.png",
+                new ImageMetadata(10, LAST_MODIFIED), new ByteArrayResource(new byte[5])));
+        assertNull(imageCacheService.getImage(1L, ImageSize.ORIGINAL));
+    }
+
+    @Test
+    void getImage_CachedAndMissed_PublishesHitRatioAndResidentBytes() throws IOException {
+        // Arrange
+        putImage(1L, 10L, 40);
+        putImage(2L, 10L, 60);
+
+        // Act
+        imageCacheService.getImage(1L, ImageSize.ORIGINAL);
+        imageCacheService.getImage(3L, ImageSize.ORIGINAL);
+
+        // Assert
+        assertEquals(0.5, meterRegistry.get("images.cache.hit.ratio").gauge().value());
+        assertEquals(100.0, meterRegistry.get("images.cache.resident.bytes").gauge().value());
+    }
+
+    @Test
+    void onPostsPurged_ImagesOfPurgedPostCached_DropsOnlyThem() throws IOException {
+        // Arrange
+        putImage(1L, 10L, 10);
+        putImage(2L, 20L, 10);
+
+        // Act
+        imageCacheService.onPostsPurged(new PostsPurgedEvent(List.of(10L)));
+
+        // Assert
+        assertNull(imageCacheService.getImage(1L, ImageSize.ORIGINAL));
+        assertNotNull(imageCacheService.getImage(2L, ImageSize.ORIGINAL));
+    }
+
+    private ImageCacheService.CachedImage putImage(Long id, Long postId, int size) throws IOException {
+        // Requested twice, so that the image is admitted
+        imageCacheService.putImage(id, ImageSize.ORIGINAL, postId, "image/png", "image" + id + ".png",
+                new ImageMetadata(size, LAST_MODIFIED), new ByteArrayResource(new byte[size]));
+        return imageCacheService.putImage(id, ImageSize.ORIGINAL, postId, "image/png", "image" + id + ".png",
+                new ImageMetadata(size, LAST_MODIFIED), new ByteArrayResource(new byte[size]));
+    }
+}
@@ -0,0 +1,128 @@
+package com.socialmedia.app.service;
+
+import com.socialmedia.app.event.ImagesAddedEvent;
+import com.socialmedia.app.storage.InMemoryImageStorage;
+import com.socialmedia.app.util.ImageSize;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ImageRenditionServiceTest {
+    private final InMemoryImageStorage imageStorage = new InMemoryImageStorage();
+
+    private final JobService jobService = mock(JobService.class);
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ImageRenditionService imageRenditionService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        imageRenditionService = new ImageRenditionService(imageStorage, jobService, meterRegistry);
+    }
+
+    @Test
+    void render_LargeImage_GeneratesAllRenditions() throws IOException {
+        // Arrange
+        writeImage("image.png", 2000, 1000, "png");
+
+        // Act
+        imageRenditionService.render("image.png");
+
+        // Assert
+        assertDimensions("image-large.png", 1600, 800);
+        assertDimensions("image-medium.png", 800, 400);
+        assertDimensions("image-thumbnail.png", 200, 100);
+        assertEquals(3.0, meterRegistry.counter("posts.images.renditions").count());
+    }
+
+    @Test
+    void render_MediumSizedJpeg_GeneratesOnlySmallerRenditions() throws IOException {
+        // Arrange
+        writeImage("image.jpeg", 600, 900, "jpeg");
+
+        // Act
+        imageRenditionService.render("image.jpeg");
+
+        // Assert
+        assertNull(imageStorage.stat("image-large.jpeg"));
+        assertDimensions("image-medium.jpeg", 533, 800);
+        assertDimensions("image-thumbnail.jpeg", 133, 200);
+    }
+
+    @Test
+    void render_SmallImage_GeneratesNoRenditions() throws IOException {
+        // Arrange
+        writeImage("image.png", 150, 100, "png");
+
+        // Act
+        imageRenditionService.render("image.png");
+
+        // Assert
+        assertNoRenditions("image.png");
+        assertEquals(0.0, meterRegistry.counter("posts.images.renditions.failed").count());
+    }
+
+    @Test
+    void render_UnreadableImage_KeepsOnlyOriginal() throws IOException {
+        // Arrange
+        imageStorage.write("image.webp", out -> out.write(new byte[]{'R', 'I', 'F', 'F', 0, 0, 0, 0, 'W', 'E', 'B', 'P'}));
+
+        // Act
+        imageRenditionService.render("image.webp");
+
+        // Assert
+        assertNoRenditions("image.webp");
+        assertEquals(0.0, meterRegistry.counter("posts.images.renditions").count());
+    }
+
+    @Test
+    void render_OriginalMissing_ThrowsToRetryJob() {
+        // Act & Assert
+        assertThrows(NoSuchFileException.class, () -> imageRenditionService.render("missing.png"));
+        assertEquals(1.0, meterRegistry.counter("posts.images.renditions.failed").count());
+    }
+
+    @Test
+    void onImagesAdded_NewImages_QueuesRenditionJobs() {
+        // Act
+        imageRenditionService.onImagesAdded(new ImagesAddedEvent(1L, List.of("a.png", "b.png")));
+
+        // Assert
+        verify(jobService, times(1)).register(eq("images.rendition"), any());
+        verify(jobService, times(1)).enqueueLocal("images.rendition", List.of("a.png", "b.png"), 10);
+    }
+
+    private void writeImage(String location, int width, int height, String format) throws IOException {
+        var image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        imageStorage.write(location, out -> assertTrue(ImageIO.write(image, format, out)));
+    }
+
+    private void assertDimensions(String location, int width, int height) throws IOException {
+        try (var in = imageStorage.read(location).getInputStream()) {
+            var image = ImageIO.read(in);
+            assertEquals(width, image.getWidth());
+            assertEquals(height, image.getHeight());
+        }
+    }
+
+    private void assertNoRenditions(String location) throws IOException {
+        assertNotNull(imageStorage.stat(location));
+        for (var size : ImageSize.values()) {
+            if (size != ImageSize.ORIGINAL)
+                assertNull(imageStorage.stat(size.location(location)));
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.socialmedia.app.service;
+
+import com.socialmedia.app.model.Image;
+import com.socialmedia.app.model.Post;
+import com.socialmedia.app.repository.ImageRepository;
+import com.socialmedia.app.storage.InMemoryImageStorage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ImageUploadServiceTest {
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n', 0, 0, 0, 13, 'I', 'H', 'D', 'R', 1, 2, 3};
+    private static final byte[] JPEG = {(byte) 0xff, (byte) 0xd8, (byte) 0xff, (byte) 0xe0, 0, 16, 'J', 'F', 'I', 'F', 0, 4, 5, 6};
+
+    @Mock
+    private ImageRepository imageRepository;
+
+    @Mock
+    private JobService jobService;
+
+    private final InMemoryImageStorage imageStorage = new InMemoryImageStorage();
+
+    private final Post post = new Post("Title", "Body");
+
+    private ImageUploadService imageUploadService;
+
+    @BeforeEach
+    void setUp() {
+        imageUploadService = new ImageUploadService(imageRepository, imageStorage, jobService, 2, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        imageUploadService.shutdown();
+    }
+
+    @Test
+    void saveImages_ValidImages_SavesFilesNamedAfterContent() throws IOException, NoSuchAlgorithmException {
+        // Arrange
+        MultipartFile[] images = {
+                new MockMultipartFile("image", "a.png", null, PNG),
+                new MockMultipartFile("image", "b.jpg", null, JPEG)
+        };
+        when(jobService.getInstanceId()).thenReturn("instance-1");
+
+        // Act
+        List<Image> result = imageUploadService.saveImages(post, images);
+
+        // Assert
+        assertEquals(2, result.size());
+        assertEquals(sha256(PNG) + ".png", result.get(0).getLocation());
+        assertEquals(sha256(JPEG) + ".jpeg", result.get(1).getLocation());
+        assertEquals("image/png", result.get(0).getMediaType());
+        assertEquals("image/jpeg", result.get(1).getMediaType());
+        assertEquals(sha256(PNG), result.get(0).getChecksum());
+        assertSame(post, result.get(0).getPost());
+        assertEquals("instance-1", result.get(0).getStorage());
+        assertArrayEquals(PNG, read(result.get(0).getLocation()));
+        assertArrayEquals(JPEG, read(result.get(1).getLocation()));
+        verify(imageRepository, times(1)).saveAll(result);
+    }
+
+    @Test
+    void saveImages_ContentAlreadyStored_SkipsWrite() throws IOException, NoSuchAlgorithmException {
+        // Arrange
+        imageStorage.write(sha256(PNG) + ".png", out -> out.write(PNG));
+        MultipartFile image = mock(MultipartFile.class);
+        when(image.getSize()).thenReturn((long) PNG.length);
+        when(image.getInputStream()).thenReturn(new ByteArrayInputStream(PNG));
+
+        // Act
+        List<Image> result = imageUploadService.saveImages(post, new MultipartFile[]{image});
+
+        // Assert
+        assertEquals(sha256(PNG) + ".png", result.get(0).getLocation());
+        verify(image, times(1)).getInputStream();
+    }
+
+    @Test
+    void saveImages_StoredContentPurgedWhileSaving_WritesFileAgain() throws IOException, NoSuchAlgorithmException {
+        // Arrange
+        String location = sha256(PNG) + ".png";
+        imageStorage.write(location, out -> out.write(PNG));
+        MultipartFile[] images = {new MockMultipartFile("image", "a.png", null, PNG)};
+        when(imageRepository.saveAll(any())).thenAnswer(invocation -> {
+            imageStorage.delete(location);
+            return invocation.getArgument(0);
+        });
+
+        // Act
+        imageUploadService.saveImages(post, images);
+
+        // Assert
+        assertArrayEquals(PNG, read(location));
+    }
+
+    @Test
+    void saveImages_WrittenContentPurgedWhileSaving_WritesFileAgain() throws IOException, NoSuchAlgorithmException {
+        // Arrange
+        String location = sha256(PNG) + ".png";
+        MultipartFile[] images = {new MockMultipartFile("image", "a.png", null, PNG)};
+        when(imageRepository.saveAll(any())).thenAnswer(invocation -> {
+            imageStorage.delete(location);
+            return invocation.getArgument(0);
+        });
+
+        // Act
+        imageUploadService.saveImages(post, images);
+
+        // Assert
+        assertArrayEquals(PNG, read(location));
+    }
+
+    @Test
+    void saveImages_ImagesNotSaved_QueuesWrittenFilesForUnlinking() throws IOException, NoSuchAlgorithmException {
+        // Arrange
+        String location = sha256(PNG) + ".png";
+        String storedLocation = sha256(JPEG) + ".jpeg";
+        imageStorage.write(storedLocation, out -> out.write(JPEG));
+        MultipartFile[] images = {
+                new MockMultipartFile("image", "a.png", null, PNG),
+                new MockMultipartFile("image", "b.png", null, PNG),
+                new MockMultipartFile("image", "c.jpg", null, JPEG)
+        };
+        when(imageRepository.saveAll(any())).thenThrow(new DataAccessResourceFailureException("Connection refused"));
+
+        // Act & Assert
+        assertThrows(DataAccessResourceFailureException.class, () -> imageUploadService.saveImages(post, images));
+        verify(jobService, times(1)).enqueueLocal("images.unlink", List.of(location), 0);
+    }
+
+    @Test
+    void saveImages_ImageTooLarge_ThrowsExceptionWithoutReadingIt() throws IOException {
+        // Arrange
+        MultipartFile image = mock(MultipartFile.class);
+        when(image.getSize()).thenReturn(21L * 1024 * 1024);
+
+        // Act & Assert
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class,
+                () -> imageUploadService.saveImages(post, new MultipartFile[]{image}));
+        assertEquals(HttpStatus.NOT_ACCEPTABLE, exception.getStatusCode());
+        verify(image, never()).getInputStream();
+        verify(image, never()).getBytes();
+    }
+
+    @Test
+    void saveImages_EmptyImage_ThrowsException() {
+        // Arrange
+        MultipartFile[] images = {new MockMultipartFile("image", "a.png", null, new byte[0])};
+
+        // Act & Assert
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> imageUploadService.saveImages(post, images));
+        assertEquals(HttpStatus.NOT_ACCEPTABLE, exception.getStatusCode());
+    }
+
+    @Test
+    void saveImages_OneFileNotAnImage_ThrowsExceptionAndSavesNothing() throws IOException, NoSuchAlgorithmException {
+        // Arrange
+        MultipartFile[] images = {
+                new MockMultipartFile("image", "a.png", null, PNG),
+                new MockMultipartFile("image", "b.png", null, "Lorem ipsum dolor sit amet".getBytes())
+        };
+
+        // Act & Assert
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> imageUploadService.saveImages(post, images));
+        assertEquals(HttpStatus.NOT_ACCEPTABLE, exception.getStatusCode());
+        assertNull(imageStorage.stat(sha256(PNG) + ".png"));
+        verifyNoInteractions(imageRepository);
+    }
+
+    private byte[] read(String location) throws IOException {
+        return imageStorage.read(location).getContentAsByteArray();
+    }
+
+    private static String sha256(byte[] content) throws NoSuchAlgorithmException {
+        return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+    }
+}
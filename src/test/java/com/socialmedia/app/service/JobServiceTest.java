@@ -0,0 +1,232 @@
+package com.socialmedia.app.service;
+
+import com.socialmedia.app.model.Job;
+import com.socialmedia.app.repository.JobRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JobServiceTest {
+    @Mock
+    private JobRepository jobRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private JobService jobService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        jobService = new JobService(jobRepository, TransactionOperations.withoutTransaction(), "instance-1", "local", 2,
+                Duration.ofMinutes(5), 3, Duration.ofSeconds(10), Duration.ofDays(7), Duration.ofDays(1), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jobService.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void enqueue_Payloads_InsertsDueJobs() {
+        // Arrange
+        ArgumentCaptor<List<Job>> captor = ArgumentCaptor.forClass(List.class);
+
+        // Act
+        jobService.enqueue("test", List.of("a", "b"), 10);
+
+        // Assert
+        verify(jobRepository, times(1)).saveAll(captor.capture());
+        assertEquals(List.of("a", "b"), captor.getValue().stream().map(Job::getPayload).toList());
+        assertTrue(captor.getValue().stream().allMatch(job -> job.getType().equals("test") && job.getPriority() == 10
+                && job.getOwner() == null && !job.getRunAt().isAfter(Instant.now())));
+        assertEquals(2.0, meterRegistry.counter("jobs.enqueued", "type", "test").count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void enqueueLocal_Payloads_InsertsJobsOwnedByInstance() {
+        // Arrange
+        ArgumentCaptor<List<Job>> captor = ArgumentCaptor.forClass(List.class);
+
+        // Act
+        jobService.enqueueLocal("test", List.of("a"), 0);
+
+        // Assert
+        verify(jobRepository, times(1)).saveAll(captor.capture());
+        assertEquals("instance-1", captor.getValue().get(0).getOwner());
+    }
+
+    @Test
+    void claim_DueJobs_LeasesJobsAndRecordsLag() {
+        // Arrange
+        var job = new Job("test", "a", 0, Instant.now().minusSeconds(30));
+        when(jobRepository.findDue(any(), eq("instance-1"), eq(PageRequest.of(0, 2)))).thenReturn(List.of(job));
+
+        // Act
+        var result = jobService.claim(2);
+
+        // Assert
+        assertEquals(List.of(job), result);
+        assertEquals(1, job.getAttempts());
+        assertTrue(job.getRunAt().isAfter(Instant.now().plus(Duration.ofMinutes(4))));
+        assertTrue(meterRegistry.timer("jobs.lag", "type", "test").totalTime(TimeUnit.SECONDS) >= 30);
+    }
+
+    @Test
+    void run_HandlerSucceeds_RemovesJob() {
+        // Arrange
+        var handled = new StringBuilder();
+        jobService.register("test", handled::append);
+
+        // Act
+        jobService.run(claimed("test", "a", 1));
+
+        // Assert
+        assertEquals("a", handled.toString());
+        verify(jobRepository, times(1)).removeById(any());
+        assertEquals(1.0, meterRegistry.counter("jobs.completed", "type", "test").count());
+        assertEquals(1L, meterRegistry.timer("jobs.duration", "type", "test").count());
+    }
+
+    @Test
+    void run_HandlerFails_RetriesWithGrowingBackoff() {
+        // Arrange
+        jobService.register("test", payload -> {
+            throw new IOException("Disk full");
+        });
+        var before = Instant.now();
+
+        // Act
+        jobService.run(claimed("test", "a", 2));
+
+        // Assert
+        var captor = ArgumentCaptor.forClass(Instant.class);
+        verify(jobRepository, times(1)).reschedule(any(), captor.capture(), eq("java.io.IOException: Disk full"));
+        assertFalse(captor.getValue().isBefore(before.plusSeconds(20)));
+        assertTrue(captor.getValue().isBefore(before.plusSeconds(30)));
+        verify(jobRepository, never()).removeById(any());
+        assertEquals(1.0, meterRegistry.counter("jobs.retried", "type", "test").count());
+    }
+
+    @Test
+    void run_HandlerFailsLastAttempt_GivesUpJob() {
+        // Arrange
+        jobService.register("test", payload -> {
+            throw new IOException("Disk full");
+        });
+
+        // Act
+        jobService.run(claimed("test", "a", 3));
+
+        // Assert
+        verify(jobRepository, times(1)).markFailed(any(), any(), eq("java.io.IOException: Disk full"));
+        verify(jobRepository, never()).reschedule(any(), any(), any());
+        assertEquals(1.0, meterRegistry.counter("jobs.failed", "type", "test").count());
+    }
+
+    @Test
+    void run_UnknownType_RetriesJob() {
+        // Act
+        jobService.run(claimed("unknown", "a", 1));
+
+        // Assert
+        verify(jobRepository, times(1)).reschedule(any(), any(), any());
+    }
+
+    @Test
+    void poll_DueJobs_RunsJobsOnIdleWorkers() throws InterruptedException {
+        // Arrange
+        var done = new CountDownLatch(2);
+        jobService.register("test", payload -> done.countDown());
+        when(jobRepository.findDue(any(), any(), any()))
+                .thenReturn(List.of(new Job("test", "a", 0, Instant.now()), new Job("test", "b", 0, Instant.now())), List.of());
+        when(jobRepository.countDue(any(), any())).thenReturn(0L);
+
+        // Act
+        jobService.poll();
+
+        // Assert
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        verify(jobRepository, timeout(5000).times(2)).removeById(any());
+        assertEquals(0.0, meterRegistry.get("jobs.pending").gauge().value());
+    }
+
+    @Test
+    void prune_FailedJobs_RemovesJobsFailedBeforeRetention() {
+        // Arrange
+        when(jobRepository.removeFailedBefore(any())).thenReturn(3);
+        var before = Instant.now();
+
+        // Act
+        jobService.prune();
+
+        // Assert
+        var captor = ArgumentCaptor.forClass(Instant.class);
+        verify(jobRepository, times(1)).removeFailedBefore(captor.capture());
+        assertFalse(captor.getValue().isBefore(before.minus(Duration.ofDays(7))));
+        assertTrue(captor.getValue().isBefore(Instant.now().minus(Duration.ofDays(7)).plusSeconds(1)));
+        assertEquals(3.0, meterRegistry.counter("jobs.pruned").count());
+    }
+
+    @Test
+    void prune_OrphanedOwnedJobs_GivesUpJobsDueLongerThanTimeout() {
+        // Arrange
+        when(jobRepository.markOrphansFailed(any(), any(), any())).thenReturn(2);
+        var before = Instant.now();
+
+        // Act
+        jobService.prune();
+
+        // Assert
+        var captor = ArgumentCaptor.forClass(Instant.class);
+        verify(jobRepository, times(1)).markOrphansFailed(captor.capture(), any(), any());
+        assertFalse(captor.getValue().isBefore(before.minus(Duration.ofDays(1))));
+        assertTrue(captor.getValue().isBefore(Instant.now().minus(Duration.ofDays(1)).plusSeconds(1)));
+        assertEquals(2.0, meterRegistry.counter("jobs.expired").count());
+    }
+
+    @Test
+    void constructor_InstanceIdNotSetForLocalStorage_Throws() {
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> new JobService(jobRepository, TransactionOperations.withoutTransaction(),
+                "", "local", 1, Duration.ofMinutes(5), 3, Duration.ofSeconds(10), Duration.ofDays(7), Duration.ofDays(1), meterRegistry));
+    }
+
+    @Test
+    void constructor_InstanceIdNotSetForMemoryStorage_UsesRandomId() {
+        // Act
+        var service = new JobService(jobRepository, TransactionOperations.withoutTransaction(),
+                "", "memory", 1, Duration.ofMinutes(5), 3, Duration.ofSeconds(10), Duration.ofDays(7), Duration.ofDays(1), meterRegistry);
+
+        // Assert
+        assertFalse(service.getInstanceId().isBlank());
+        service.shutdown();
+    }
+
+    private static Job claimed(String type, String payload, int attempts) {
+        var job = new Job(type, payload, 0, Instant.now());
+        job.setAttempts(attempts);
+        return job;
+    }
+}
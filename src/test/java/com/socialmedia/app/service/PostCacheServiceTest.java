@@ -0,0 +1,88 @@
+package com.socialmedia.app.service;
+
+import com.socialmedia.app.dto.PostDto;
+import com.socialmedia.app.event.PostDeletedEvent;
+import com.socialmedia.app.event.PostUpdatedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostCacheServiceTest {
+    private SimpleMeterRegistry meterRegistry;
+
+    private PostCacheService postCacheService;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        postCacheService = new PostCacheService(100, Duration.ofMinutes(1), meterRegistry);
+    }
+
+    @Test
+    void getPost_PostCached_ReturnsCachedPostAndCountsHit() {
+        // Arrange
+        var first = postCacheService.getPost(1L, this::load);
+
+        // Act
+        var second = postCacheService.getPost(1L, this::load);
+
+        // Assert
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tags("cache", "posts", "result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tags("cache", "posts", "result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void getPost_PostNotFound_ThrowsAndDoesNotCache() {
+        // Act & Assert
+        assertThrows(ResponseStatusException.class, () -> postCacheService.getPost(1L, id -> {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Post with given id not found!");
+        }));
+        postCacheService.getPost(1L, this::load);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void onPostUpdated_PostCached_LoadsPostAgain() {
+        // Arrange
+        postCacheService.getPost(1L, this::load);
+
+        // Act
+        postCacheService.onPostUpdated(new PostUpdatedEvent(1L, 2L));
+        postCacheService.getPost(1L, this::load);
+
+        // Assert
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void onPostDeleted_PostCached_LoadsPostAgain() {
+        // Arrange
+        postCacheService.getPost(1L, this::load);
+        postCacheService.getPost(3L, this::load);
+
+        // Act
+        postCacheService.onPostDeleted(new PostDeletedEvent(1L, 2L));
+        postCacheService.getPost(1L, this::load);
+        postCacheService.getPost(3L, this::load);
+
+        // Assert
+        assertEquals(3, loads.get());
+    }
+
+    private PostDto load(Long id) {
+        loads.incrementAndGet();
+        return new PostDto(id, "Title", "Body", Instant.now(), "author", 0L);
+    }
+}
@@ -0,0 +1,201 @@
+package com.socialmedia.app.service;
+
+import com.socialmedia.app.dto.PostImageFile;
+import com.socialmedia.app.event.PostsPurgedEvent;
+import com.socialmedia.app.repository.ImageRepository;
+import com.socialmedia.app.repository.PostRepository;
+import com.socialmedia.app.storage.InMemoryImageStorage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PostPurgeServiceTest {
+    @Mock
+    private PostRepository postRepository;
+
+    @Mock
+    private ImageRepository imageRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private JobService jobService;
+
+    private final InMemoryImageStorage imageStorage = spy(new InMemoryImageStorage());
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private PostPurgeService postPurgeService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        postPurgeService = new PostPurgeService(postRepository, imageRepository, imageStorage, eventPublisher, jobService,
+                TransactionOperations.withoutTransaction(), 2, meterRegistry);
+    }
+
+    @Test
+    void purge_DeletedPostsWithImages_QueuesUnlinksForOwningStoragesAndRemovesRows() throws IOException {
+        // Arrange
+        write("a.png", "a");
+        when(postRepository.findDeletedIds(2)).thenReturn(List.of(1L, 2L), List.of(3L));
+        when(imageRepository.findFilesByPostIds(List.of(1L, 2L))).thenReturn(List.of(
+                file(1L, "b.png", "instance-1"), file(1L, "a.png", "instance-1"), file(2L, "a.png", "instance-1"),
+                file(2L, "a.png", "instance-2")));
+        when(imageRepository.findFilesByPostIds(List.of(3L))).thenReturn(List.of());
+
+        // Act
+        postPurgeService.purge();
+
+        // Assert
+        assertEquals("a", read("a.png"));
+        verify(jobService, times(1)).enqueue("images.unlink", List.of("a.png", "b.png"), "instance-1", 0);
+        verify(jobService, times(1)).enqueue("images.unlink", List.of("a.png"), "instance-2", 0);
+        verify(imageRepository, times(1)).deleteByPostIds(List.of(1L, 2L));
+        verify(postRepository, times(1)).purgeByIds(List.of(1L, 2L));
+        verify(postRepository, times(1)).purgeByIds(List.of(3L));
+        verify(eventPublisher, times(1)).publishEvent(new PostsPurgedEvent(List.of(1L, 2L)));
+        verify(eventPublisher, times(1)).publishEvent(new PostsPurgedEvent(List.of(3L)));
+        assertEquals(3.0, meterRegistry.counter("posts.purge.posts").count());
+        assertEquals(4.0, meterRegistry.counter("posts.purge.images").count());
+    }
+
+    @Test
+    void unlink_FileNoLongerUsed_UnlinksFileAndRenditions() throws IOException {
+        // Arrange
+        write("a.png", "a");
+        write("a-thumbnail.png", "a");
+        when(jobService.getInstanceId()).thenReturn("instance-1");
+
+        // Act
+        postPurgeService.unlink("a.png");
+
+        // Assert
+        assertNull(imageStorage.stat("a.png"));
+        assertNull(imageStorage.stat("a.png.deleting"));
+        assertNull(imageStorage.stat("a-thumbnail.png"));
+        assertEquals(0.0, meterRegistry.counter("posts.purge.files.failed").count());
+    }
+
+    @Test
+    void unlink_FileMovedAsideByEarlierAttempt_UnlinksFileAndRenditions() throws IOException {
+        // Arrange
+        write("a.png.deleting", "a");
+        write("a-thumbnail.png", "a");
+        when(jobService.getInstanceId()).thenReturn("instance-1");
+
+        // Act
+        postPurgeService.unlink("a.png");
+
+        // Assert
+        assertNull(imageStorage.stat("a.png.deleting"));
+        assertNull(imageStorage.stat("a-thumbnail.png"));
+        assertEquals(0.0, meterRegistry.counter("posts.purge.files.failed").count());
+    }
+
+    @Test
+    void unlink_FileUsedByOtherImage_KeepsFileAndRenditions() throws IOException {
+        // Arrange
+        write("shared.png", "a");
+        write("shared-thumbnail.png", "a");
+        when(jobService.getInstanceId()).thenReturn("instance-1");
+        when(imageRepository.existsByLocationAndStorage("shared.png", "instance-1")).thenReturn(true);
+
+        // Act
+        postPurgeService.unlink("shared.png");
+
+        // Assert
+        assertEquals("a", read("shared.png"));
+        assertNotNull(imageStorage.stat("shared-thumbnail.png"));
+        verify(imageStorage, never()).move(any(), any());
+    }
+
+    @Test
+    void unlink_FileUsedAgainWhileMovedAside_RestoresFile() throws IOException {
+        // Arrange
+        write("reused.png", "a");
+        write("reused-thumbnail.png", "a");
+        when(jobService.getInstanceId()).thenReturn("instance-1");
+        when(imageRepository.existsByLocationAndStorage("reused.png", "instance-1")).thenReturn(false, true);
+
+        // Act
+        postPurgeService.unlink("reused.png");
+
+        // Assert
+        assertEquals("a", read("reused.png"));
+        assertNull(imageStorage.stat("reused.png.deleting"));
+        assertNotNull(imageStorage.stat("reused-thumbnail.png"));
+    }
+
+    @Test
+    void unlink_FileCannotBeUnlinked_ThrowsToRetryJob() throws IOException {
+        // Arrange
+        write("stuck.png", "x");
+        write("stuck-thumbnail.png", "x");
+        when(jobService.getInstanceId()).thenReturn("instance-1");
+        doThrow(new IOException("Device or resource busy")).when(imageStorage).delete("stuck.png.deleting");
+
+        // Act & Assert
+        assertThrows(IOException.class, () -> postPurgeService.unlink("stuck.png"));
+        assertNull(imageStorage.stat("stuck-thumbnail.png"));
+        assertEquals(1.0, meterRegistry.counter("posts.purge.files.failed").count());
+    }
+
+    @Test
+    void purge_NoDeletedPosts_DoesNothing() {
+        // Arrange
+        when(postRepository.findDeletedIds(2)).thenReturn(List.of());
+        when(postRepository.countDeleted()).thenReturn(0L);
+
+        // Act
+        postPurgeService.purge();
+
+        // Assert
+        verifyNoInteractions(imageRepository);
+        verify(postRepository, never()).purgeByIds(any());
+        verifyNoInteractions(eventPublisher);
+        assertEquals(0.0, meterRegistry.get("posts.purge.pending").gauge().value());
+    }
+
+    private void write(String location, String content) throws IOException {
+        imageStorage.write(location, out -> out.write(content.getBytes()));
+    }
+
+    private String read(String location) throws IOException {
+        return imageStorage.read(location).getContentAsString(StandardCharsets.UTF_8);
+    }
+
+    private static PostImageFile file(Long postId, String location, String storage) {
+        return new PostImageFile() {
+            @Override
+            public Long getPostId() {
+                return postId;
+            }
+
+            @Override
+            public String getLocation() {
+                return location;
+            }
+
+            @Override
+            public String getStorage() {
+                return storage;
+            }
+        };
+    }
+}
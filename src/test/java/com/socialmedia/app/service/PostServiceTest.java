@@ -1,27 +1,66 @@
 package com.socialmedia.app.service;
 
+import com.socialmedia.app.dto.CursorPageDto;
 import com.socialmedia.app.dto.PostDto;
+import com.socialmedia.app.dto.PostImageEntry;
+import com.socialmedia.app.dto.PostSummaryDto;
+import com.socialmedia.app.event.ImagesAddedEvent;
+import com.socialmedia.app.event.PostCreatedEvent;
+import com.socialmedia.app.event.PostDeletedEvent;
+import com.socialmedia.app.event.PostUpdatedEvent;
+import com.socialmedia.app.event.PostsCreatedEvent;
+import com.socialmedia.app.model.Image;
 import com.socialmedia.app.model.Post;
 import com.socialmedia.app.model.User;
 import com.socialmedia.app.repository.ImageRepository;
 import com.socialmedia.app.repository.PostRepository;
 import com.socialmedia.app.repository.UserRepository;
+import com.socialmedia.app.storage.ImageMetadata;
+import com.socialmedia.app.storage.LocalImageStorage;
+import com.socialmedia.app.util.ImageSize;
 import com.socialmedia.app.util.PostConvertor;
+import com.socialmedia.app.util.PostCursor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.Resource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.security.Principal;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -38,25 +77,50 @@ class PostServiceTest {
     @Mock
     private PostConvertor postConvertor;
 
+    @Mock
+    private TimelineService timelineService;
+
+    @Mock
+    private FeedPageCacheService feedPageCacheService;
+
+    @Mock
+    private PostCacheService postCacheService;
+
+    @Mock
+    private ImageUploadService imageUploadService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private ImageCacheService imageCacheService;
+
+    @TempDir
+    private Path imagesDirectory;
+
+    private LocalImageStorage imageStorage;
+
+    private final SignedImageUrlService signedImageUrlService = new SignedImageUrlService(Base64.getEncoder().encodeToString(new byte[32]), Duration.ofHours(1));
+
     private PostService postService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        postService = new PostService(postRepository, userRepository, imageRepository, postConvertor);
+        imageStorage = new LocalImageStorage(imagesDirectory);
+        postService = new PostService(postRepository, userRepository, imageRepository, postConvertor, timelineService, feedPageCacheService, postCacheService, imageUploadService, eventPublisher, imageStorage, imageCacheService, signedImageUrlService, Duration.ofSeconds(5));
     }
 
     @Test
     void getPostById_PostExists_ReturnsPostDto() {
         // Arrange
         Long postId = 1L;
-        Post post = new Post();
-        post.setId(postId);
-        PostDto postDto = new PostDto();
-        postDto.setId(postId);
+        PostDto postDto = new PostDto(postId, "Title", "Body", Instant.now(), "testUser", 0L);
 
-        when(postRepository.findById(postId)).thenReturn(Optional.of(post));
-        when(postConvertor.convertToDto(post)).thenReturn(postDto);
+        when(postCacheService.getPost(eq(postId), any())).thenAnswer(invocation -> invocation.<Function<Long, PostDto>>getArgument(1).apply(postId));
+        when(postRepository.findDtoById(postId)).thenReturn(Optional.of(postDto));
+        when(imageRepository.findEntriesByPostIds(List.of(postId)))
+                .thenReturn(List.of(new PostImageEntry(postId, 3L), new PostImageEntry(postId, 4L)));
 
         // Act
         PostDto result = postService.getPostById(postId);
@@ -64,10 +128,51 @@ class PostServiceTest {
         // Assert
         assertNotNull(result);
         assertEquals(postId, result.getId());
-        verify(postRepository, times(1)).findById(postId);
+        assertArrayEquals(new long[]{3L, 4L}, result.getImages());
+        verify(postRepository, times(1)).findDtoById(postId);
         verifyNoMoreInteractions(postRepository);
-        verify(postConvertor, times(1)).convertToDto(post);
-        verifyNoMoreInteractions(postConvertor);
+        verifyNoInteractions(postConvertor);
+    }
+
+    @Test
+    void getPostById_PostWithImages_ReturnsSignedImageUrls() {
+        // Arrange
+        Long postId = 1L;
+        PostDto postDto = new PostDto(postId, "Title", "Body", Instant.now(), "testUser", 0L);
+
+        when(postCacheService.getPost(eq(postId), any())).thenAnswer(invocation -> invocation.<Function<Long, PostDto>>getArgument(1).apply(postId));
+        when(postRepository.findDtoById(postId)).thenReturn(Optional.of(postDto));
+        when(imageRepository.findEntriesByPostIds(List.of(postId)))
+                .thenReturn(List.of(new PostImageEntry(postId, 3L), new PostImageEntry(postId, 4L)));
+
+        // Act
+        PostDto result = postService.getPostById(postId);
+
+        // Assert
+        assertEquals(2, result.getImageUrls().length);
+        for (int i = 0; i < 2; i++) {
+            var url = UriComponentsBuilder.fromUriString(result.getImageUrls()[i]).build();
+            assertEquals("/api/v1/images/" + result.getImages()[i], url.getPath());
+            assertTrue(signedImageUrlService.verify(result.getImages()[i],
+                    Long.parseLong(url.getQueryParams().getFirst("expires")), url.getQueryParams().getFirst("signature")));
+        }
+    }
+
+    @Test
+    void getPostById_PostCached_ReturnsCachedPost() {
+        // Arrange
+        Long postId = 1L;
+        PostDto postDto = new PostDto(postId, "Title", "Body", Instant.now(), "testUser", 0L);
+
+        when(postCacheService.getPost(eq(postId), any())).thenReturn(postDto);
+
+        // Act
+        PostDto result = postService.getPostById(postId);
+
+        // Assert
+        assertSame(postDto, result);
+        verifyNoInteractions(postRepository);
+        verifyNoInteractions(imageRepository);
     }
 
     @Test
@@ -75,11 +180,12 @@ class PostServiceTest {
         // Arrange
         Long postId = 1L;
 
-        when(postRepository.findById(postId)).thenReturn(Optional.empty());
+        when(postCacheService.getPost(eq(postId), any())).thenAnswer(invocation -> invocation.<Function<Long, PostDto>>getArgument(1).apply(postId));
+        when(postRepository.findDtoById(postId)).thenReturn(Optional.empty());
 
         // Act and Assert
         assertThrows(ResponseStatusException.class, () -> postService.getPostById(postId));
-        verify(postRepository, times(1)).findById(postId);
+        verify(postRepository, times(1)).findDtoById(postId);
         verifyNoMoreInteractions(postRepository);
         verifyNoInteractions(postConvertor);
     }
@@ -128,6 +234,48 @@ class PostServiceTest {
         verifyNoInteractions(postConvertor);
     }
 
+    @Test
+    void getPostsByUsername_CursorGiven_ReturnsSummariesWithImagesAndNextCursor() {
+        // Arrange
+        String username = "testUser";
+        Instant createdAt = Instant.parse("2023-06-01T12:00:00Z");
+        PostSummaryDto post1 = new PostSummaryDto(7L, "Title 7", createdAt.minusSeconds(5));
+        PostSummaryDto post2 = new PostSummaryDto(6L, "Title 6", createdAt.minusSeconds(10));
+        PageRequest pageable = PageRequest.of(0, 2);
+
+        when(userRepository.findIdByUsername(username)).thenReturn(Optional.of(10L));
+        when(postRepository.findSummariesByUserIdBefore(10L, createdAt, 8L, pageable))
+                .thenReturn(new SliceImpl<>(List.of(post1, post2), pageable, true));
+        when(imageRepository.findEntriesByPostIds(List.of(7L, 6L)))
+                .thenReturn(List.of(new PostImageEntry(6L, 3L), new PostImageEntry(6L, 4L)));
+
+        // Act
+        CursorPageDto<PostSummaryDto> result = postService.getPostsByUsername(username, new PostCursor(createdAt, 8L).encode(), 2);
+
+        // Assert
+        assertEquals(List.of(7L, 6L), result.content().stream().map(PostSummaryDto::id).toList());
+        assertArrayEquals(new long[0], result.content().get(0).images());
+        assertArrayEquals(new long[]{3L, 4L}, result.content().get(1).images());
+        assertEquals(0, result.content().get(0).imageUrls().length);
+        assertEquals(2, result.content().get(1).imageUrls().length);
+        assertTrue(result.content().get(1).imageUrls()[0].startsWith(SignedImageUrlService.PATH + "3?"));
+        assertEquals(new PostCursor(createdAt.minusSeconds(10), 6L), PostCursor.decode(result.nextCursor()));
+        verifyNoInteractions(postConvertor);
+    }
+
+    @Test
+    void getPostsByUsername_CursorUserDoesNotExist_ThrowsException() {
+        // Arrange
+        String username = "testUser";
+
+        when(userRepository.findIdByUsername(username)).thenReturn(Optional.empty());
+
+        // Act and Assert
+        assertThrows(ResponseStatusException.class, () -> postService.getPostsByUsername(username, null, 10));
+        verifyNoInteractions(postRepository);
+        verifyNoInteractions(imageRepository);
+    }
+
     @Test
     void createPost_ValidPost_ReturnsCreatedPostDto() {
         // Arrange
@@ -155,6 +303,28 @@ class PostServiceTest {
         verifyNoMoreInteractions(postConvertor);
     }
 
+    @Test
+    void createPost_ClientSetServerFields_InsertsNewPost() {
+        // Arrange
+        Post post = new Post("Test Title", "Test Body");
+        post.setId(7L);
+        post.setVersion(0L);
+        post.setDeletedAt(Instant.now());
+        Principal principal = mock(Principal.class);
+
+        when(userRepository.findByUsername(principal.getName())).thenReturn(Optional.of(new User()));
+        when(postConvertor.convertToDto(post)).thenReturn(new PostDto());
+
+        // Act
+        postService.createPost(post, principal);
+
+        // Assert
+        verify(postRepository, times(1)).save(post);
+        assertNull(post.getId());
+        assertNull(post.getVersion());
+        assertNull(post.getDeletedAt());
+    }
+
     @Test
     void createPost_UserNotFound_ThrowsException() {
         // Arrange
@@ -171,6 +341,67 @@ class PostServiceTest {
         verifyNoInteractions(postConvertor);
     }
 
+    @Test
+    void createPosts_ValidPosts_ReturnsIdsInOrderAndPublishesOneEvent() {
+        // Arrange
+        Post post1 = new Post("First", "Body");
+        Post post2 = new Post("Second", "Body");
+        post2.setVersion(0L);
+        post2.setDeletedAt(Instant.now());
+        Principal principal = mock(Principal.class);
+        User user = new User();
+
+        when(principal.getName()).thenReturn("testUser");
+        when(userRepository.findIdByUsername("testUser")).thenReturn(Optional.of(10L));
+        when(userRepository.getReferenceById(10L)).thenReturn(user);
+        when(postRepository.saveAll(List.of(post1, post2))).thenAnswer(invocation -> {
+            post1.setId(2L);
+            post2.setId(1L);
+            return List.of(post1, post2);
+        });
+
+        // Act
+        List<Long> result = postService.createPosts(List.of(post1, post2), principal);
+
+        // Assert
+        assertEquals(List.of(2L, 1L), result);
+        assertSame(user, post1.getUser());
+        assertSame(user, post2.getUser());
+        assertNull(post2.getVersion());
+        assertNull(post2.getDeletedAt());
+        verify(postRepository, times(1)).flush();
+        verify(userRepository, never()).findByUsername(any());
+        verify(eventPublisher, times(1)).publishEvent(new PostsCreatedEvent(10L, List.of(
+                new PostCreatedEvent(2L, 10L, null), new PostCreatedEvent(1L, 10L, null))));
+    }
+
+    @Test
+    void createPosts_TooManyPosts_ThrowsException() {
+        // Arrange
+        Principal principal = mock(Principal.class);
+        List<Post> posts = Collections.nCopies(10_001, new Post());
+
+        // Act and Assert
+        var exception = assertThrows(ResponseStatusException.class, () -> postService.createPosts(posts, principal));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        verifyNoInteractions(userRepository);
+        verifyNoInteractions(postRepository);
+    }
+
+    @Test
+    void createPosts_UserNotFound_ThrowsException() {
+        // Arrange
+        Principal principal = mock(Principal.class);
+
+        when(principal.getName()).thenReturn("testUser");
+        when(userRepository.findIdByUsername("testUser")).thenReturn(Optional.empty());
+
+        // Act and Assert
+        assertThrows(ResponseStatusException.class, () -> postService.createPosts(List.of(new Post()), principal));
+        verifyNoInteractions(postRepository);
+        verifyNoInteractions(eventPublisher);
+    }
+
     @Test
     void editPost_PostExistsAndUserAuthorized_ReturnsUpdatedPostDto() {
         // Arrange
@@ -178,32 +409,24 @@ class PostServiceTest {
         editedPost.setId(1L);
         editedPost.setTitle("Updated Title");
         editedPost.setBody("Updated Body");
+        editedPost.setVersion(3L);
         Principal principal = mock(Principal.class);
-        User user = new User();
-        user.setUsername("testUser");
-        Post existingPost = new Post();
-        existingPost.setId(1L);
-        existingPost.setTitle("Old Title");
-        existingPost.setBody("Old Body");
-        existingPost.setUser(user);
-
-        when(postRepository.findById(editedPost.getId())).thenReturn(Optional.of(existingPost));
-        when(postRepository.save(existingPost)).thenReturn(existingPost);
-        when(postConvertor.convertToDto(existingPost)).thenReturn(new PostDto());
+        PostDto postDto = new PostDto(1L, "Updated Title", "Updated Body", Instant.now(), "testUser", 4L);
+
         when(principal.getName()).thenReturn("testUser");
+        when(userRepository.findIdByUsername("testUser")).thenReturn(Optional.of(10L));
+        when(postRepository.updateIfCurrent(1L, 10L, 3L, "Updated Title", "Updated Body")).thenReturn(1);
+        when(postCacheService.getPost(eq(1L), any())).thenReturn(postDto);
 
         // Act
         PostDto result = postService.editPost(editedPost, principal);
 
         // Assert
-        assertNotNull(result);
-        assertEquals(editedPost.getTitle(), existingPost.getTitle());
-        assertEquals(editedPost.getBody(), existingPost.getBody());
-        verify(postRepository, times(1)).findById(editedPost.getId());
-        verify(postRepository, times(1)).save(existingPost);
+        assertSame(postDto, result);
+        verify(postRepository, times(1)).updateIfCurrent(1L, 10L, 3L, "Updated Title", "Updated Body");
         verifyNoMoreInteractions(postRepository);
-        verify(postConvertor, times(1)).convertToDto(existingPost);
-        verifyNoMoreInteractions(postConvertor);
+        verifyNoInteractions(postConvertor);
+        verify(eventPublisher, times(1)).publishEvent(new PostUpdatedEvent(1L, 10L));
     }
 
     @Test
@@ -213,37 +436,74 @@ class PostServiceTest {
         editedPost.setId(1L);
         Principal principal = mock(Principal.class);
 
-        when(postRepository.findById(editedPost.getId())).thenReturn(Optional.empty());
+        when(principal.getName()).thenReturn("testUser");
+        when(userRepository.findIdByUsername("testUser")).thenReturn(Optional.of(10L));
+        when(postRepository.updateIfCurrent(1L, 10L, null, null, null)).thenReturn(0);
+        when(postRepository.findAuthorIdById(1L)).thenReturn(Optional.empty());
 
         // Act and Assert
-        assertThrows(ResponseStatusException.class, () -> postService.editPost(editedPost, principal));
-        verify(postRepository, times(1)).findById(editedPost.getId());
-        verifyNoMoreInteractions(postRepository);
-        verifyNoInteractions(postConvertor);
+        var exception = assertThrows(ResponseStatusException.class, () -> postService.editPost(editedPost, principal));
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+        verifyNoInteractions(eventPublisher);
     }
 
     @Test
-    void deletePost_PostExistsAndUserAuthorized_DeletesPost() {
+    void editPost_PostOfAnotherUser_ThrowsForbidden() {
+        // Arrange
+        Post editedPost = new Post();
+        editedPost.setId(1L);
+        editedPost.setTitle("Updated Title");
+        Principal principal = mock(Principal.class);
+
+        when(principal.getName()).thenReturn("testUser");
+        when(userRepository.findIdByUsername("testUser")).thenReturn(Optional.of(10L));
+        when(postRepository.updateIfCurrent(1L, 10L, null, "Updated Title", null)).thenReturn(0);
+        when(postRepository.findAuthorIdById(1L)).thenReturn(Optional.of(11L));
+
+        // Act and Assert
+        var exception = assertThrows(ResponseStatusException.class, () -> postService.editPost(editedPost, principal));
+        assertEquals(HttpStatus.FORBIDDEN, exception.getStatusCode());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void editPost_PostEditedInTheMeantime_ThrowsConflict() {
+        // Arrange
+        Post editedPost = new Post();
+        editedPost.setId(1L);
+        editedPost.setTitle("Updated Title");
+        editedPost.setVersion(3L);
+        Principal principal = mock(Principal.class);
+
+        when(principal.getName()).thenReturn("testUser");
+        when(userRepository.findIdByUsername("testUser")).thenReturn(Optional.of(10L));
+        when(postRepository.updateIfCurrent(1L, 10L, 3L, "Updated Title", null)).thenReturn(0);
+        when(postRepository.findAuthorIdById(1L)).thenReturn(Optional.of(10L));
+
+        // Act and Assert
+        var exception = assertThrows(ResponseStatusException.class, () -> postService.editPost(editedPost, principal));
+        assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void deletePost_PostExistsAndUserAuthorized_MarksPostDeleted() {
         // Arrange
         Long postId = 1L;
         Principal principal = mock(Principal.class);
-        User user = new User();
-        user.setUsername("testUser");
-        Post existingPost = new Post();
-        existingPost.setId(postId);
-        existingPost.setUser(user);
 
-        when(postRepository.findById(postId)).thenReturn(Optional.of(existingPost));
         when(principal.getName()).thenReturn("testUser");
+        when(userRepository.findIdByUsername("testUser")).thenReturn(Optional.of(10L));
+        when(postRepository.markDeleted(eq(postId), eq(10L), any())).thenReturn(1);
 
         // Act
         postService.deletePost(postId, principal);
 
         // Assert
-        verify(postRepository, times(1)).findById(postId);
-        verify(postRepository, times(1)).delete(existingPost);
+        verify(postRepository, times(1)).markDeleted(eq(postId), eq(10L), any());
         verifyNoMoreInteractions(postRepository);
-        verifyNoInteractions(postConvertor);
+        verifyNoInteractions(imageRepository);
+        verify(eventPublisher, times(1)).publishEvent(new PostDeletedEvent(postId, 10L));
     }
 
     @Test
@@ -252,12 +512,330 @@ class PostServiceTest {
         Long postId = 1L;
         Principal principal = mock(Principal.class);
 
-        when(postRepository.findById(postId)).thenReturn(Optional.empty());
+        when(principal.getName()).thenReturn("testUser");
+        when(userRepository.findIdByUsername("testUser")).thenReturn(Optional.of(10L));
+        when(postRepository.markDeleted(eq(postId), eq(10L), any())).thenReturn(0);
+        when(postRepository.findAuthorIdById(postId)).thenReturn(Optional.empty());
+
+        // Act and Assert
+        var exception = assertThrows(ResponseStatusException.class, () -> postService.deletePost(postId, principal));
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void deletePost_PostOfAnotherUser_ThrowsForbidden() {
+        // Arrange
+        Long postId = 1L;
+        Principal principal = mock(Principal.class);
+
+        when(principal.getName()).thenReturn("testUser");
+        when(userRepository.findIdByUsername("testUser")).thenReturn(Optional.of(10L));
+        when(postRepository.markDeleted(eq(postId), eq(10L), any())).thenReturn(0);
+        when(postRepository.findAuthorIdById(postId)).thenReturn(Optional.of(11L));
 
         // Act and Assert
-        assertThrows(ResponseStatusException.class, () -> postService.deletePost(postId, principal));
-        verify(postRepository, times(1)).findById(postId);
+        var exception = assertThrows(ResponseStatusException.class, () -> postService.deletePost(postId, principal));
+        assertEquals(HttpStatus.FORBIDDEN, exception.getStatusCode());
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    void getImage_ImageExists_ReturnsFileWithValidators() throws IOException {
+        // Arrange
+        Image image = image("image.png");
+        imageStorage.write("image.png", out -> out.write(new byte[]{1, 2, 3}));
+        Files.setLastModifiedTime(imageStorage.path("image.png"), FileTime.from(Instant.parse("2023-06-01T10:15:30Z")));
+
+        when(imageRepository.findById(1L)).thenReturn(Optional.of(image));
+
+        // Act
+        ResponseEntity<Resource> result = postService.getImage(1L, "original");
+
+        // Assert
+        assertEquals(HttpStatus.OK, result.getStatusCode());
+        assertEquals(MediaType.IMAGE_PNG, result.getHeaders().getContentType());
+        assertEquals(3L, result.getHeaders().getContentLength());
+        assertEquals("\"image.png\"", result.getHeaders().getETag());
+        assertEquals(Instant.parse("2023-06-01T10:15:30Z").toEpochMilli(), result.getHeaders().getLastModified());
+        assertEquals(imageStorage.path("image.png").toFile(), result.getBody().getFile());
+        assertTrue(result.getHeaders().getCacheControl().contains("immutable"));
+        verify(imageCacheService, times(1)).putImage(eq(1L), eq(ImageSize.ORIGINAL), eq(7L), eq("image/png"), eq("image.png"),
+                eq(new ImageMetadata(3, Instant.parse("2023-06-01T10:15:30Z"))), any());
+    }
+
+    @Test
+    void getImage_ImageCachedAfterRead_ServesFileFromStorage() throws IOException {
+        // Arrange
+        imageStorage.write("image.png", out -> out.write(new byte[]{1, 2, 3}));
+        var cached = new ImageCacheService.CachedImage(7L, "image/png", "image.png", new ImageMetadata(3, Instant.now()),
+                ByteBuffer.allocateDirect(3).put(new byte[]{1, 2, 3}).flip());
+
+        when(imageRepository.findById(1L)).thenReturn(Optional.of(image("image.png")));
+        when(imageCacheService.putImage(eq(1L), eq(ImageSize.ORIGINAL), eq(7L), eq("image/png"), eq("image.png"), any(), any()))
+                .thenReturn(cached);
+
+        // Act
+        ResponseEntity<Resource> result = postService.getImage(1L, "original");
+
+        // Assert
+        assertEquals(imageStorage.path("image.png").toFile(), result.getBody().getFile());
+        assertArrayEquals(new byte[]{1, 2, 3}, result.getBody().getContentAsByteArray());
+    }
+
+    @Test
+    void getImage_ImageCached_ServesCacheWithoutLookingUpImage() throws IOException {
+        // Arrange
+        var lastModified = Instant.parse("2023-06-01T10:15:30Z");
+        var cached = new ImageCacheService.CachedImage(7L, "image/png", "image-thumbnail.png", new ImageMetadata(3, lastModified),
+                ByteBuffer.allocateDirect(3).put(new byte[]{1, 2, 3}).flip());
+
+        when(imageCacheService.getImage(1L, ImageSize.THUMBNAIL)).thenReturn(cached);
+
+        // Act
+        ResponseEntity<Resource> result = postService.getImage(1L, "thumbnail");
+
+        // Assert
+        assertEquals(MediaType.IMAGE_PNG, result.getHeaders().getContentType());
+        assertEquals(3L, result.getHeaders().getContentLength());
+        assertEquals("\"image-thumbnail.png\"", result.getHeaders().getETag());
+        assertEquals(lastModified.toEpochMilli(), result.getHeaders().getLastModified());
+        assertTrue(result.getHeaders().getCacheControl().contains("immutable"));
+        assertArrayEquals(new byte[]{1, 2, 3}, result.getBody().getContentAsByteArray());
+        verifyNoInteractions(imageRepository);
+    }
+
+    @Test
+    void getImage_RenditionExists_ReturnsRendition() throws IOException {
+        // Arrange
+        imageStorage.write("image.png", out -> out.write(new byte[]{1, 2, 3}));
+        imageStorage.write("image-thumbnail.png", out -> out.write(new byte[]{1}));
+
+        when(imageRepository.findById(1L)).thenReturn(Optional.of(image("image.png")));
+
+        // Act
+        ResponseEntity<Resource> result = postService.getImage(1L, "thumbnail");
+
+        // Assert
+        assertEquals(1L, result.getHeaders().getContentLength());
+        assertEquals("\"image-thumbnail.png\"", result.getHeaders().getETag());
+        assertTrue(result.getHeaders().getCacheControl().contains("immutable"));
+    }
+
+    @Test
+    void getImage_RenditionNotGeneratedYet_ReturnsOriginalWithoutLongCaching() throws IOException {
+        // Arrange
+        imageStorage.write("image.png", out -> out.write(new byte[]{1, 2, 3}));
+
+        when(imageRepository.findById(1L)).thenReturn(Optional.of(image("image.png")));
+
+        // Act
+        ResponseEntity<Resource> result = postService.getImage(1L, "medium");
+
+        // Assert
+        assertEquals(3L, result.getHeaders().getContentLength());
+        assertEquals("\"image.png\"", result.getHeaders().getETag());
+        assertTrue(result.getHeaders().getCacheControl().contains("no-cache"));
+        verify(imageCacheService, never()).putImage(any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void getSignedImage_ImageExists_AllowsSharedCachingUntilUrlExpires() throws IOException {
+        // Arrange
+        imageStorage.write("image.png", out -> out.write(new byte[]{1, 2, 3}));
+        long expires = Instant.now().plus(Duration.ofMinutes(30)).getEpochSecond();
+
+        when(imageRepository.findById(1L)).thenReturn(Optional.of(image("image.png")));
+
+        // Act
+        ResponseEntity<Resource> result = postService.getSignedImage(1L, "original", expires);
+
+        // Assert
+        assertEquals(3L, result.getHeaders().getContentLength());
+        var cacheControl = result.getHeaders().getCacheControl();
+        assertTrue(cacheControl.contains("public"));
+        assertTrue(cacheControl.contains("immutable"));
+        long maxAge = Long.parseLong(cacheControl.replaceAll(".*max-age=(\\d+).*", "$1"));
+        assertTrue(maxAge > 1790 && maxAge <= 1800);
+    }
+
+    @Test
+    void getImage_InvalidSize_ThrowsBadRequest() {
+        // Act & Assert
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> postService.getImage(1L, "huge"));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        verifyNoInteractions(imageRepository);
+    }
+
+    @Test
+    void getImage_FileMissing_ThrowsException() {
+        // Arrange
+        when(imageRepository.findById(1L)).thenReturn(Optional.of(new Image("missing.png", "image/png")));
+
+        // Act & Assert
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> postService.getImage(1L, "original"));
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+    }
+
+    @Test
+    void addImageToPost_PostExists_SavesUploadedImagesAndPublishesEvents() throws IOException {
+        // Arrange
+        User user = new User("testUser", "test@mail.com", "password");
+        ReflectionTestUtils.setField(user, "id", 10L);
+        Post post = new Post("Title", "Body");
+        post.setId(1L);
+        post.setUser(user);
+        MultipartFile[] images = {mock(MultipartFile.class)};
+        Image image = new Image("image.png", "image/png", "checksum");
+
+        when(postRepository.findById(1L)).thenReturn(Optional.of(post));
+        when(imageUploadService.saveImages(post, images)).thenReturn(List.of(image));
+
+        // Act
+        postService.addImageToPost(1L, images);
+
+        // Assert
+        verify(eventPublisher, times(1)).publishEvent(new PostUpdatedEvent(1L, 10L));
+        verify(eventPublisher, times(1)).publishEvent(new ImagesAddedEvent(1L, List.of("image.png")));
+    }
+
+    @Test
+    void getUserFeed_PageInTimeline_ReturnsPostsInTimelineOrder() {
+        // Arrange
+        Principal principal = mock(Principal.class);
+        PostDto postDto1 = new PostDto();
+        postDto1.setId(1L);
+        PostDto postDto2 = new PostDto();
+        postDto2.setId(2L);
+        PageRequest pageable = PageRequest.of(0, 2, Sort.Direction.DESC, "createdAt");
+
+        when(principal.getName()).thenReturn("testUser");
+        when(userRepository.findIdByUsername("testUser")).thenReturn(Optional.of(10L));
+        when(feedPageCacheService.getPage(eq(10L), eq(pageable), any())).thenAnswer(invocation -> invocation.<Supplier<List<PostDto>>>getArgument(2).get());
+        when(timelineService.getFeedPage(10L, 0, 2)).thenReturn(Optional.of(new long[]{2L, 1L}));
+        when(postRepository.findDtosByIds(List.of(2L, 1L))).thenReturn(List.of(postDto1, postDto2));
+
+        // Act
+        List<PostDto> result = postService.getUserFeed(principal, pageable);
+
+        // Assert
+        assertEquals(List.of(postDto2, postDto1), result);
+        verify(postRepository, times(1)).findDtosByIds(List.of(2L, 1L));
+        verify(imageRepository, times(1)).findEntriesByPostIds(List.of(2L, 1L));
         verifyNoMoreInteractions(postRepository);
-        verifyNoInteractions(postConvertor);
     }
-}
\ No newline at end of file
+
+    @Test
+    void getUserFeed_CursorGiven_ReturnsPostsBeforeCursorWithNextCursor() {
+        // Arrange
+        Principal principal = mock(Principal.class);
+        Instant createdAt = Instant.parse("2023-06-01T12:00:00Z");
+        PostDto postDto = new PostDto(7L, "Title", "Body", createdAt.minusSeconds(5), "author", 0L);
+        PageRequest pageable = PageRequest.of(0, 1);
+
+        when(principal.getName()).thenReturn("testUser");
+        when(userRepository.findIdByUsername("testUser")).thenReturn(Optional.of(10L));
+        when(postRepository.findFeedBefore(10L, createdAt, 8L, pageable))
+                .thenReturn(new SliceImpl<>(List.of(postDto), pageable, true));
+
+        // Act
+        CursorPageDto<PostDto> result = postService.getUserFeed(principal, new PostCursor(createdAt, 8L).encode(), 1);
+
+        // Assert
+        assertEquals(List.of(postDto), result.content());
+        assertEquals(new PostCursor(createdAt.minusSeconds(5), 7L), PostCursor.decode(result.nextCursor()));
+    }
+
+    @Test
+    void getUserFeed_InvalidCursor_ThrowsException() {
+        // Arrange
+        Principal principal = mock(Principal.class);
+
+        when(principal.getName()).thenReturn("testUser");
+        when(userRepository.findIdByUsername("testUser")).thenReturn(Optional.of(10L));
+
+        // Act and Assert
+        assertThrows(ResponseStatusException.class, () -> postService.getUserFeed(principal, "not-a-cursor", 3));
+        verifyNoInteractions(postRepository);
+    }
+
+    @Test
+    void getUserFeed_CursorOutOfRange_ThrowsBadRequest() {
+        // Arrange
+        Principal principal = mock(Principal.class);
+        String cursor = Base64.getUrlEncoder().withoutPadding().encodeToString((Long.MAX_VALUE + ":0:1").getBytes());
+
+        when(principal.getName()).thenReturn("testUser");
+        when(userRepository.findIdByUsername("testUser")).thenReturn(Optional.of(10L));
+
+        // Act and Assert
+        var exception = assertThrows(ResponseStatusException.class, () -> postService.getUserFeed(principal, cursor, 3));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+        verifyNoInteractions(postRepository);
+    }
+
+    @Test
+    void getUserFeed_SizeOutOfRange_ThrowsBadRequest() {
+        // Arrange
+        Principal principal = mock(Principal.class);
+
+        // Act and Assert
+        var tooSmall = assertThrows(ResponseStatusException.class, () -> postService.getUserFeed(principal, null, 0));
+        var tooLarge = assertThrows(ResponseStatusException.class, () -> postService.getUserFeed(principal, null, 101));
+        assertEquals(HttpStatus.BAD_REQUEST, tooSmall.getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, tooLarge.getStatusCode());
+        verifyNoInteractions(userRepository);
+        verifyNoInteractions(postRepository);
+    }
+
+    @Test
+    void getUserFeed_AscendingPage_QueriesFollowedPostsInDatabase() {
+        // Arrange
+        Principal principal = mock(Principal.class);
+        PostDto postDto = new PostDto();
+        postDto.setId(1L);
+        PageRequest pageable = PageRequest.of(1, 2, Sort.Direction.ASC, "createdAt");
+
+        when(principal.getName()).thenReturn("testUser");
+        when(userRepository.findIdByUsername("testUser")).thenReturn(Optional.of(10L));
+        when(feedPageCacheService.getPage(eq(10L), eq(pageable), any())).thenAnswer(invocation -> invocation.<Supplier<List<PostDto>>>getArgument(2).get());
+        when(postRepository.findFeed(10L, PageRequest.of(1, 2, Sort.Direction.ASC, "createdAt", "id")))
+                .thenReturn(new SliceImpl<>(List.of(postDto)));
+
+        // Act
+        List<PostDto> result = postService.getUserFeed(principal, pageable);
+
+        // Assert
+        assertEquals(List.of(postDto), result);
+        verifyNoInteractions(timelineService);
+        verify(userRepository, never()).findByUsername(any());
+    }
+
+    @Test
+    void getUserFeed_PageCached_ReturnsCachedPage() {
+        // Arrange
+        Principal principal = mock(Principal.class);
+        PostDto postDto = new PostDto();
+        PageRequest pageable = PageRequest.of(0, 2, Sort.Direction.DESC, "createdAt");
+
+        when(principal.getName()).thenReturn("testUser");
+        when(userRepository.findIdByUsername("testUser")).thenReturn(Optional.of(10L));
+        when(feedPageCacheService.getPage(eq(10L), eq(pageable), any())).thenReturn(List.of(postDto));
+
+        // Act
+        List<PostDto> result = postService.getUserFeed(principal, pageable);
+
+        // Assert
+        assertEquals(List.of(postDto), result);
+        verifyNoInteractions(timelineService);
+        verifyNoInteractions(postRepository);
+    }
+
+    private static Image image(String location) {
+        Post post = new Post("Title", "Body");
+        post.setId(7L);
+        Image image = new Image(location, "image/png");
+        image.setPost(post);
+        return image;
+    }
+}
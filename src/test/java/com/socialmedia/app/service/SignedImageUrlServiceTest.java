@@ -0,0 +1,90 @@
+package com.socialmedia.app.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SignedImageUrlServiceTest {
+    private static final String KEY = Base64.getEncoder().encodeToString(new byte[32]);
+    private static final Instant NOW = Instant.parse("2023-06-01T10:15:30Z");
+
+    private final SignedImageUrlService signedImageUrlService = new SignedImageUrlService(KEY, Duration.ofHours(1));
+
+    @Test
+    void sign_ImageIds_ReturnsUrlsValidForOneToTwoLifetimes() {
+        // Act
+        String[] result = signedImageUrlService.sign(new long[]{3L, 4L}, NOW);
+
+        // Assert
+        assertEquals(2, result.length);
+        var url = UriComponentsBuilder.fromUriString(result[0]).build();
+        assertEquals("/api/v1/images/3", url.getPath());
+        assertEquals(Instant.parse("2023-06-01T12:00:00Z").getEpochSecond(), expires(url));
+        assertTrue(signedImageUrlService.verify(3L, expires(url), signature(url), NOW.plus(Duration.ofMinutes(100))));
+        assertFalse(signedImageUrlService.verify(3L, expires(url), signature(url), Instant.parse("2023-06-01T12:00:00Z")));
+    }
+
+    @Test
+    void sign_SameImageWithinLifetime_ReturnsSameUrl() {
+        // Act & Assert
+        assertEquals(signedImageUrlService.sign(new long[]{3L}, NOW)[0],
+                signedImageUrlService.sign(new long[]{3L}, NOW.plus(Duration.ofMinutes(40)))[0]);
+    }
+
+    @Test
+    void verify_UrlOfOtherImage_ReturnsFalse() {
+        // Arrange
+        var url = UriComponentsBuilder.fromUriString(signedImageUrlService.sign(new long[]{3L}, NOW)[0]).build();
+
+        // Act & Assert
+        assertFalse(signedImageUrlService.verify(4L, expires(url), signature(url), NOW));
+    }
+
+    @Test
+    void verify_ExpiryExtended_ReturnsFalse() {
+        // Arrange
+        var url = UriComponentsBuilder.fromUriString(signedImageUrlService.sign(new long[]{3L}, NOW)[0]).build();
+
+        // Act & Assert
+        assertFalse(signedImageUrlService.verify(3L, expires(url) + 3600, signature(url), NOW));
+    }
+
+    @Test
+    void verify_SignedWithOtherKey_ReturnsFalse() {
+        // Arrange
+        var otherKey = new byte[32];
+        otherKey[0] = 1;
+        var other = new SignedImageUrlService(Base64.getEncoder().encodeToString(otherKey), Duration.ofHours(1));
+        var url = UriComponentsBuilder.fromUriString(other.sign(new long[]{3L}, NOW)[0]).build();
+
+        // Act & Assert
+        assertFalse(signedImageUrlService.verify(3L, expires(url), signature(url), NOW));
+    }
+
+    @Test
+    void constructor_KeyNotSet_Throws() {
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> new SignedImageUrlService("", Duration.ofHours(1)));
+    }
+
+    @Test
+    void constructor_KeyTooShort_Throws() {
+        // Act & Assert
+        assertThrows(IllegalStateException.class,
+                () -> new SignedImageUrlService(Base64.getEncoder().encodeToString(new byte[16]), Duration.ofHours(1)));
+    }
+
+    private static long expires(UriComponents url) {
+        return Long.parseLong(url.getQueryParams().getFirst("expires"));
+    }
+
+    private static String signature(UriComponents url) {
+        return url.getQueryParams().getFirst("signature");
+    }
+}
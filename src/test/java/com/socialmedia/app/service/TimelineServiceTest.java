@@ -0,0 +1,254 @@
+package com.socialmedia.app.service;
+
+import com.socialmedia.app.event.FollowingChangedEvent;
+import com.socialmedia.app.event.PostCreatedEvent;
+import com.socialmedia.app.event.PostDeletedEvent;
+import com.socialmedia.app.event.PostsCreatedEvent;
+import com.socialmedia.app.repository.UserRepository;
+import com.socialmedia.app.util.Timeline;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TimelineServiceTest {
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private RecentPostsService recentPostsService;
+
+    private TimelineService timelineService;
+
+    private final Instant now = Instant.parse("2023-06-01T12:00:00Z");
+
+    @BeforeEach
+    void setUp() {
+        timelineService = new TimelineService(userRepository, recentPostsService, new FollowerService(userRepository, 10), 3, 100,
+                Duration.ofMinutes(5));
+    }
+
+    @Test
+    void getFeedPage_TimelineNotLoaded_MergesRecentPostsOfFollowedAuthors() {
+        // Arrange
+        Long userId = 1L;
+        when(userRepository.findFollowingIdsById(userId)).thenReturn(List.of(2L, 3L));
+        when(recentPostsService.getRecentPosts(List.of(2L, 3L), 3)).thenReturn(Map.of(
+                2L, entries(true, 12L, now, 10L, now.minusSeconds(20)),
+                3L, entries(true, 11L, now.minusSeconds(10))));
+
+        // Act
+        var firstPage = timelineService.getFeedPage(userId, 0, 2);
+        var secondPage = timelineService.getFeedPage(userId, 2, 2);
+
+        // Assert
+        assertArrayEquals(new long[]{12L, 11L}, firstPage.orElseThrow());
+        assertArrayEquals(new long[]{10L}, secondPage.orElseThrow());
+        verify(recentPostsService, times(1)).getRecentPosts(List.of(2L, 3L), 3);
+    }
+
+    @Test
+    void getFeedPage_PageBeyondTruncatedRecentPosts_ReturnsEmpty() {
+        // Arrange
+        Long userId = 1L;
+        when(userRepository.findFollowingIdsById(userId)).thenReturn(List.of(2L, 3L));
+        when(recentPostsService.getRecentPosts(List.of(2L, 3L), 3)).thenReturn(Map.of(
+                2L, entries(false, 13L, now.minusSeconds(10)),
+                3L, entries(true, 14L, now, 11L, now.minusSeconds(30))));
+
+        // Act
+        var firstPage = timelineService.getFeedPage(userId, 0, 2);
+        var secondPage = timelineService.getFeedPage(userId, 2, 2);
+
+        // Assert
+        assertArrayEquals(new long[]{14L, 13L}, firstPage.orElseThrow());
+        assertTrue(secondPage.isEmpty());
+    }
+
+    @Test
+    void onPostCreated_FollowerTimelineLoaded_PushesPostToTimeline() {
+        // Arrange
+        Long userId = 1L;
+        Long authorId = 2L;
+        when(userRepository.findFollowingIdsById(userId)).thenReturn(List.of(authorId));
+        when(recentPostsService.getRecentPosts(List.of(authorId), 3)).thenReturn(Map.of(
+                authorId, entries(true, 11L, now.minusSeconds(10))));
+        when(userRepository.findFollowerCountById(authorId)).thenReturn(2L);
+        when(userRepository.findFollowerIdsById(authorId)).thenReturn(List.of(userId, 3L));
+        timelineService.getFeedPage(userId, 0, 2);
+
+        // Act
+        timelineService.onPostCreated(new PostCreatedEvent(20L, authorId, now));
+
+        // Assert
+        assertArrayEquals(new long[]{20L, 11L}, timelineService.getFeedPage(userId, 0, 2).orElseThrow());
+        verify(userRepository, times(1)).findFollowingIdsById(any());
+    }
+
+    @Test
+    void onPostCreated_WhileFollowerTimelineIsBuilt_PushesPostOnceBuilt() {
+        // Arrange
+        Long userId = 1L;
+        Long authorId = 2L;
+        when(userRepository.findFollowingIdsById(userId)).thenReturn(List.of(authorId));
+        when(userRepository.findFollowerCountById(authorId)).thenReturn(1L);
+        when(userRepository.findFollowerIdsById(authorId)).thenReturn(List.of(userId));
+        // The post is created after its author's recent posts were read for the timeline
+        when(recentPostsService.getRecentPosts(List.of(authorId), 3)).thenAnswer(invocation -> {
+            timelineService.onPostCreated(new PostCreatedEvent(20L, authorId, now));
+            return Map.of(authorId, entries(true, 11L, now.minusSeconds(10)));
+        });
+
+        // Act
+        var page = timelineService.getFeedPage(userId, 0, 2);
+
+        // Assert
+        assertArrayEquals(new long[]{20L, 11L}, page.orElseThrow());
+    }
+
+    @Test
+    void onPostsCreated_FollowerTimelineLoaded_PushesPostsWithOneFollowerLookup() {
+        // Arrange
+        Long userId = 1L;
+        Long authorId = 2L;
+        when(userRepository.findFollowingIdsById(userId)).thenReturn(List.of(authorId));
+        when(recentPostsService.getRecentPosts(List.of(authorId), 3)).thenReturn(Map.of(
+                authorId, entries(true, 11L, now.minusSeconds(10))));
+        when(userRepository.findFollowerCountById(authorId)).thenReturn(1L);
+        when(userRepository.findFollowerIdsById(authorId)).thenReturn(List.of(userId));
+        timelineService.getFeedPage(userId, 0, 2);
+
+        // Act
+        timelineService.onPostsCreated(new PostsCreatedEvent(authorId, List.of(
+                new PostCreatedEvent(20L, authorId, now.minusSeconds(1)),
+                new PostCreatedEvent(21L, authorId, now))));
+
+        // Assert
+        assertArrayEquals(new long[]{21L, 20L, 11L}, timelineService.getFeedPage(userId, 0, 3).orElseThrow());
+        verify(userRepository, times(1)).findFollowerIdsById(authorId);
+    }
+
+    @Test
+    void onPostDeleted_FollowerTimelineLoaded_RemovesPostFromTimeline() {
+        // Arrange
+        Long userId = 1L;
+        Long authorId = 2L;
+        when(userRepository.findFollowingIdsById(userId)).thenReturn(List.of(authorId));
+        when(recentPostsService.getRecentPosts(List.of(authorId), 3)).thenReturn(Map.of(
+                authorId, entries(true, 12L, now, 11L, now.minusSeconds(10))));
+        when(userRepository.findFollowerIdsById(authorId)).thenReturn(List.of(userId));
+        timelineService.getFeedPage(userId, 0, 2);
+
+        // Act
+        timelineService.onPostDeleted(new PostDeletedEvent(12L, authorId));
+
+        // Assert
+        assertArrayEquals(new long[]{11L}, timelineService.getFeedPage(userId, 0, 2).orElseThrow());
+    }
+
+    @Test
+    void onFollowingChanged_TimelineLoaded_RebuildsTimelineOnNextRead() {
+        // Arrange
+        Long userId = 1L;
+        when(userRepository.findFollowingIdsById(userId)).thenReturn(List.of());
+        when(recentPostsService.getRecentPosts(List.of(), 3)).thenReturn(Map.of());
+        timelineService.getFeedPage(userId, 0, 2);
+
+        // Act
+        timelineService.onFollowingChanged(new FollowingChangedEvent(userId, 2L));
+        timelineService.getFeedPage(userId, 0, 2);
+
+        // Assert
+        verify(userRepository, times(2)).findFollowingIdsById(userId);
+    }
+
+    @Test
+    void onPostCreated_AuthorOverFollowerThreshold_DoesNotPushPost() {
+        // Arrange
+        Long authorId = 2L;
+        when(userRepository.findFollowerCountById(authorId)).thenReturn(10L);
+
+        // Act
+        timelineService.onPostCreated(new PostCreatedEvent(20L, authorId, now));
+
+        // Assert
+        verify(userRepository, never()).findFollowerIdsById(any());
+    }
+
+    @Test
+    void onPostCreated_AuthorCrossedThresholdAfterTimelineWasBuilt_PushesPostWithoutFollowerLookup() {
+        // Arrange
+        Long userId = 1L;
+        Long authorId = 2L;
+        when(userRepository.findFollowingIdsById(userId)).thenReturn(List.of(authorId));
+        when(recentPostsService.getRecentPosts(List.of(authorId), 3)).thenReturn(Map.of(
+                authorId, entries(true, 11L, now.minusSeconds(10))));
+        timelineService.getFeedPage(userId, 0, 2);
+        when(userRepository.findFollowerCountById(authorId)).thenReturn(10L);
+
+        // Act
+        timelineService.onPostCreated(new PostCreatedEvent(20L, authorId, now));
+
+        // Assert
+        assertArrayEquals(new long[]{20L, 11L}, timelineService.getFeedPage(userId, 0, 2).orElseThrow());
+        verify(userRepository, never()).findFollowerIdsById(any());
+    }
+
+    @Test
+    void getFeedPage_FollowingPulledAuthor_MergesRecentPostsOfAuthor() {
+        // Arrange
+        Long userId = 1L;
+        Long pushedAuthorId = 2L;
+        Long pulledAuthorId = 3L;
+        when(userRepository.findFollowingIdsByIdAndFollowerCountAtLeast(userId, 10)).thenReturn(List.of(pulledAuthorId));
+        when(userRepository.findFollowingIdsById(userId)).thenReturn(List.of(pushedAuthorId, pulledAuthorId));
+        when(recentPostsService.getRecentPosts(List.of(pushedAuthorId), 3)).thenReturn(Map.of(
+                pushedAuthorId, entries(true, 11L, now.minusSeconds(20))));
+        when(recentPostsService.getRecentPosts(List.of(pulledAuthorId), 3)).thenReturn(Map.of(
+                pulledAuthorId, entries(true, 13L, now, 12L, now.minusSeconds(10))));
+
+        // Act
+        var page = timelineService.getFeedPage(userId, 0, 3);
+
+        // Assert
+        assertArrayEquals(new long[]{13L, 12L, 11L}, page.orElseThrow());
+    }
+
+    @Test
+    void getFeedPage_PostInSeveralRunsWithTiedTimestamps_ReturnsPostOnce() {
+        // Arrange
+        Long userId = 1L;
+        when(userRepository.findFollowingIdsById(userId)).thenReturn(List.of(2L, 3L));
+        when(recentPostsService.getRecentPosts(List.of(2L, 3L), 3)).thenReturn(Map.of(
+                2L, entries(true, 12L, now, 10L, now),
+                3L, entries(true, 12L, now, 11L, now)));
+
+        // Act
+        var page = timelineService.getFeedPage(userId, 0, 3);
+
+        // Assert
+        assertArrayEquals(new long[]{12L, 11L, 10L}, page.orElseThrow());
+    }
+
+    private static Timeline.Entries entries(boolean complete, Object... postIdsAndInstants) {
+        int count = postIdsAndInstants.length / 2;
+        long[] postIds = new long[count];
+        long[] timestamps = new long[count];
+        for (int i = 0; i < count; i++) {
+            postIds[i] = (Long) postIdsAndInstants[2 * i];
+            timestamps[i] = Timeline.toTimestamp((Instant) postIdsAndInstants[2 * i + 1]);
+        }
+        return new Timeline.Entries(postIds, timestamps, complete);
+    }
+}
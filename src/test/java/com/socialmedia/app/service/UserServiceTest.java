@@ -1,21 +1,29 @@
 package com.socialmedia.app.service;
 
 import com.socialmedia.app.dto.UserDto;
-import com.socialmedia.app.model.User;
+import com.socialmedia.app.event.FollowingChangedEvent;
 import com.socialmedia.app.repository.FriendStatusRepository;
+import com.socialmedia.app.repository.PostRepository;
 import com.socialmedia.app.repository.UserRepository;
-import com.socialmedia.app.util.UserConvertor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.security.Principal;
-import java.util.HashSet;
+import java.time.Duration;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -29,66 +37,201 @@ class UserServiceTest {
     private FriendStatusRepository friendStatusRepository;
 
     @Mock
-    private UserConvertor userConvertor;
+    private PostRepository postRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
 
     @Mock
     private Principal principal;
 
-    @InjectMocks
     private UserService userService;
 
     @BeforeEach
     void setUp() {
-        reset(userRepository, friendStatusRepository, userConvertor, principal);
+        reset(userRepository, friendStatusRepository, postRepository, eventPublisher, principal);
+        userService = new UserService(userRepository, friendStatusRepository, postRepository, eventPublisher, Duration.ofSeconds(5));
     }
 
     @Test
     void testGetUserByUsername_ExistingUser_ReturnsUserDto() {
         // Arrange
         String username = "testuser";
-        User user = new User();
-        user.setUsername(username);
-        UserDto expectedDto = new UserDto();
-        when(userRepository.findByUsername(username)).thenReturn(Optional.of(user));
-        when(userConvertor.convertToDto(user)).thenReturn(expectedDto);
+        UserDto expectedDto = new UserDto(username, "testuser@mail.com");
+        when(userRepository.findDtoByUsername(username)).thenReturn(Optional.of(expectedDto));
+        when(postRepository.findIdsByUsername(username)).thenReturn(List.of(2L, 1L));
+        when(userRepository.findFollowingUsernamesByUsername(username)).thenReturn(List.of("following"));
+        when(userRepository.findFollowerUsernamesByUsername(username)).thenReturn(List.of("follower"));
+        when(userRepository.findFriendUsernamesByUsername(username)).thenReturn(List.of());
 
         // Act
         UserDto actualDto = userService.getUserByUsername(username);
 
         // Assert
         assertEquals(expectedDto, actualDto);
+        assertArrayEquals(new long[]{2L, 1L}, actualDto.getPosts());
+        assertEquals(Set.of("following"), actualDto.getFollowing());
+        assertEquals(Set.of("follower"), actualDto.getFollowers());
+        assertTrue(actualDto.getFriends().isEmpty());
     }
 
     @Test
     void testGetUserByUsername_NonExistingUser_ThrowsException() {
         // Arrange
         String username = "nonexistinguser";
-        when(userRepository.findByUsername(username)).thenReturn(Optional.empty());
+        when(userRepository.findDtoByUsername(username)).thenReturn(Optional.empty());
 
         // Act and Assert
         assertThrows(ResponseStatusException.class, () -> userService.getUserByUsername(username));
     }
 
+    @Test
+    void testGetUserByUsername_ConcurrentReads_LoadsUserOnce() throws Exception {
+        // Arrange
+        String username = "testuser";
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userRepository.findDtoByUsername(username)).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await();
+            return Optional.of(new UserDto(username, "testuser@mail.com"));
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            // Act
+            Future<UserDto> first = executor.submit(() -> userService.getUserByUsername(username));
+            loading.await();
+            Future<UserDto> second = executor.submit(() -> userService.getUserByUsername(username));
+            Thread.sleep(100);
+            release.countDown();
+
+            // Assert
+            assertSame(first.get(), second.get());
+            verify(userRepository, times(1)).findDtoByUsername(username);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testGetUserByUsername_ConcurrentReadOfMissingUser_BothThrowException() throws Exception {
+        // Arrange
+        String username = "nonexistinguser";
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userRepository.findDtoByUsername(username)).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await();
+            return Optional.empty();
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            // Act
+            Future<UserDto> first = executor.submit(() -> userService.getUserByUsername(username));
+            loading.await();
+            Future<UserDto> second = executor.submit(() -> userService.getUserByUsername(username));
+            Thread.sleep(100);
+            release.countDown();
+
+            // Assert
+            var firstException = assertThrows(ExecutionException.class, first::get);
+            var secondException = assertThrows(ExecutionException.class, second::get);
+            assertInstanceOf(ResponseStatusException.class, firstException.getCause());
+            assertSame(firstException.getCause(), secondException.getCause());
+            verify(userRepository, times(1)).findDtoByUsername(username);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testGetUserByUsername_ConcurrentReadTooSlow_ThrowsServiceUnavailable() throws Exception {
+        // Arrange
+        String username = "testuser";
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userRepository.findDtoByUsername(username)).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await();
+            return Optional.of(new UserDto(username, "testuser@mail.com"));
+        });
+        userService = new UserService(userRepository, friendStatusRepository, postRepository, eventPublisher, Duration.ofMillis(50));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            // Act
+            executor.submit(() -> userService.getUserByUsername(username));
+            loading.await();
+            var exception = assertThrows(ResponseStatusException.class, () -> userService.getUserByUsername(username));
+            release.countDown();
+
+            // Assert
+            assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatusCode());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     void testFollowUser_ValidUser_SuccessfullyFollows() {
         // Arrange
-        String followerUsername = "follower";
-        String followingUsername = "following";
-        User follower = new User();
-        follower.setUsername(followerUsername);
-        follower.setFollowing(new HashSet<>());
-        User following = new User();
-        following.setUsername(followingUsername);
-        following.setFollowing(new HashSet<>());
-        when(userRepository.findByUsername(followingUsername)).thenReturn(Optional.of(following));
-        when(userRepository.findByUsername(null)).thenReturn(Optional.empty());
-        when(userRepository.findByUsername(principal.getName())).thenReturn(Optional.of(follower));
+        when(principal.getName()).thenReturn("follower");
+        when(userRepository.findIdByUsername("follower")).thenReturn(Optional.of(1L));
+        when(userRepository.findIdByUsername("following")).thenReturn(Optional.of(2L));
+        when(userRepository.addFollowing(1L, 2L)).thenReturn(1);
+
+        // Act
+        assertDoesNotThrow(() -> userService.followUser("following", principal));
+
+        // Assert
+        verify(userRepository, times(1)).addFollowerCount(2L, 1);
+        verify(eventPublisher, times(1)).publishEvent(new FollowingChangedEvent(1L, 2L));
+    }
+
+    @Test
+    void testFollowUser_AlreadyFollowing_KeepsFollowerCount() {
+        // Arrange
+        when(principal.getName()).thenReturn("follower");
+        when(userRepository.findIdByUsername("follower")).thenReturn(Optional.of(1L));
+        when(userRepository.findIdByUsername("following")).thenReturn(Optional.of(2L));
+        when(userRepository.addFollowing(1L, 2L)).thenReturn(0);
+
+        // Act
+        userService.followUser("following", principal);
+
+        // Assert
+        verify(userRepository, never()).addFollowerCount(any(), anyLong());
+    }
+
+    @Test
+    void testUnFollowUser_Following_DecrementsFollowerCount() {
+        // Arrange
+        when(principal.getName()).thenReturn("follower");
+        when(userRepository.findIdByUsername("follower")).thenReturn(Optional.of(1L));
+        when(userRepository.findIdByUsername("following")).thenReturn(Optional.of(2L));
+        when(userRepository.removeFollowing(1L, 2L)).thenReturn(1);
+
+        // Act
+        userService.unFollowUser("following", principal);
+
+        // Assert
+        verify(userRepository, times(1)).addFollowerCount(2L, -1);
+    }
+
+    @Test
+    void testUnFollowUser_NotFollowing_KeepsFollowerCount() {
+        // Arrange
+        when(principal.getName()).thenReturn("follower");
+        when(userRepository.findIdByUsername("follower")).thenReturn(Optional.of(1L));
+        when(userRepository.findIdByUsername("following")).thenReturn(Optional.of(2L));
+        when(userRepository.removeFollowing(1L, 2L)).thenReturn(0);
 
         // Act
-        assertDoesNotThrow(() -> userService.followUser(followingUsername, principal));
+        userService.unFollowUser("following", principal);
 
         // Assert
-        assertTrue(follower.getFollowing().contains(following));
-        verify(userRepository, times(1)).save(follower);
+        verify(userRepository, never()).addFollowerCount(any(), anyLong());
     }
-}
\ No newline at end of file
+}
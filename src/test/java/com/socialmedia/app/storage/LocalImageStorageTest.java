@@ -0,0 +1,120 @@
+package com.socialmedia.app.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalImageStorageTest {
+    @TempDir
+    private Path root;
+
+    private LocalImageStorage imageStorage;
+
+    @BeforeEach
+    void setUp() {
+        imageStorage = new LocalImageStorage(root);
+    }
+
+    @Test
+    void path_Location_FansOutByLeadingCharacters() {
+        // Act
+        Path result = imageStorage.path("abcdef.png");
+
+        // Assert
+        assertEquals(root.resolve("ab").resolve("cd").resolve("abcdef.png"), result);
+    }
+
+    @Test
+    void write_Content_WritesFileWithoutLeavingTemporaryFiles() throws IOException {
+        // Act
+        imageStorage.write("abcdef.png", out -> out.write(new byte[]{1, 2, 3}));
+
+        // Assert
+        assertArrayEquals(new byte[]{1, 2, 3}, Files.readAllBytes(imageStorage.path("abcdef.png")));
+        try (var files = Files.list(imageStorage.path("abcdef.png").getParent())) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void write_WriterFails_KeepsNoFile() throws IOException {
+        // Act & Assert
+        assertThrows(IOException.class, () -> imageStorage.write("abcdef.png", out -> {
+            out.write(1);
+            throw new IOException("No writer for png");
+        }));
+        assertNull(imageStorage.stat("abcdef.png"));
+        try (var files = Files.list(imageStorage.path("abcdef.png").getParent())) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    @Test
+    void stat_FileExists_ReturnsSize() throws IOException {
+        // Arrange
+        imageStorage.write("abcdef.png", out -> out.write(new byte[]{1, 2, 3}));
+
+        // Act
+        ImageMetadata result = imageStorage.stat("abcdef.png");
+
+        // Assert
+        assertEquals(3L, result.size());
+        assertEquals(Files.getLastModifiedTime(imageStorage.path("abcdef.png")).toInstant(), result.lastModified());
+    }
+
+    @Test
+    void stat_FileMissing_ReturnsNull() throws IOException {
+        // Act & Assert
+        assertNull(imageStorage.stat("abcdef.png"));
+    }
+
+    @Test
+    void read_FileExists_ReturnsFileResource() throws IOException {
+        // Arrange
+        imageStorage.write("abcdef.png", out -> out.write(new byte[]{1, 2, 3}));
+
+        // Act
+        var result = imageStorage.read("abcdef.png");
+
+        // Assert
+        assertTrue(result.isFile());
+        assertEquals(imageStorage.path("abcdef.png").toFile(), result.getFile());
+    }
+
+    @Test
+    void move_FileExists_MovesFile() throws IOException {
+        // Arrange
+        imageStorage.write("abcdef.png", out -> out.write(new byte[]{1, 2, 3}));
+
+        // Act
+        imageStorage.move("abcdef.png", "abcdef.png.deleting");
+
+        // Assert
+        assertNull(imageStorage.stat("abcdef.png"));
+        assertEquals(3L, imageStorage.stat("abcdef.png.deleting").size());
+    }
+
+    @Test
+    void move_FileMissing_ThrowsException() {
+        // Act & Assert
+        assertThrows(NoSuchFileException.class, () -> imageStorage.move("abcdef.png", "abcdef.png.deleting"));
+    }
+
+    @Test
+    void delete_FileExists_DeletesFile() throws IOException {
+        // Arrange
+        imageStorage.write("abcdef.png", out -> out.write(new byte[]{1, 2, 3}));
+
+        // Act & Assert
+        assertTrue(imageStorage.delete("abcdef.png"));
+        assertFalse(imageStorage.delete("abcdef.png"));
+        assertNull(imageStorage.stat("abcdef.png"));
+    }
+}
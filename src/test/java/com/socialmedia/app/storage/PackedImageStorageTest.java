@@ -0,0 +1,202 @@
+package com.socialmedia.app.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackedImageStorageTest {
+    private static final int SEGMENT_SIZE = 4096;
+    private static final int MAX_PACKED_SIZE = 1024;
+
+    @TempDir
+    private Path directory;
+
+    private final InMemoryImageStorage largeFiles = new InMemoryImageStorage();
+
+    private PackedImageStorage imageStorage;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        imageStorage = open();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        imageStorage.close();
+    }
+
+    @Test
+    void write_SmallFile_PacksFileIntoSegment() throws IOException {
+        // Act
+        write("a.png", content(100, 1));
+
+        // Assert
+        assertArrayEquals(content(100, 1), read("a.png"));
+        assertEquals(100L, imageStorage.stat("a.png").size());
+        assertFalse(imageStorage.read("a.png").isFile());
+        assertNull(largeFiles.stat("a.png"));
+        assertEquals(1, segments().length);
+    }
+
+    @Test
+    void write_LargeFile_KeepsFileInLargeFileStorage() throws IOException {
+        // Act
+        imageStorage.write("a.png", out -> out.write(content(2000, 1)));
+
+        // Assert
+        assertArrayEquals(content(2000, 1), read("a.png"));
+        assertEquals(2000L, largeFiles.stat("a.png").size());
+    }
+
+    @Test
+    void write_SegmentFull_AppendsToNewSegment() throws IOException {
+        // Act
+        for (int i = 0; i < 5; i++)
+            write("image" + i + ".png", content(1000, i));
+
+        // Assert
+        assertEquals(2, segments().length);
+        for (int i = 0; i < 5; i++)
+            assertArrayEquals(content(1000, i), read("image" + i + ".png"));
+    }
+
+    @Test
+    void read_RangeOfPackedFile_SkipsToOffset() throws IOException {
+        // Arrange
+        write("a.png", content(100, 1));
+
+        // Act
+        try (var in = imageStorage.read("a.png").getInputStream()) {
+            assertEquals(40L, in.skip(40));
+            var result = in.readAllBytes();
+
+            // Assert
+            assertArrayEquals(Arrays.copyOfRange(content(100, 1), 40, 100), result);
+        }
+    }
+
+    @Test
+    void delete_PackedFile_DeletesFile() throws IOException {
+        // Arrange
+        write("a.png", content(100, 1));
+
+        // Act & Assert
+        assertTrue(imageStorage.delete("a.png"));
+        assertFalse(imageStorage.delete("a.png"));
+        assertNull(imageStorage.stat("a.png"));
+    }
+
+    @Test
+    void move_PackedFile_MovesFile() throws IOException {
+        // Arrange
+        write("a.png", content(100, 1));
+
+        // Act
+        imageStorage.move("a.png", "a.png.deleting");
+
+        // Assert
+        assertNull(imageStorage.stat("a.png"));
+        assertArrayEquals(content(100, 1), read("a.png.deleting"));
+        assertThrows(NoSuchFileException.class, () -> imageStorage.move("a.png", "a.png.deleting"));
+    }
+
+    @Test
+    void open_ExistingSegments_RestoresLiveFiles() throws IOException {
+        // Arrange
+        write("a.png", content(100, 1));
+        write("b.png", content(100, 2));
+        write("b.png", content(50, 3));
+        imageStorage.delete("a.png");
+        imageStorage.close();
+
+        // Act
+        imageStorage = open();
+
+        // Assert
+        assertNull(imageStorage.stat("a.png"));
+        assertArrayEquals(content(50, 3), read("b.png"));
+    }
+
+    @Test
+    void open_RecordTornByCrash_IgnoresRecordAndAppendsOverIt() throws IOException {
+        // Arrange
+        write("a.png", content(100, 1));
+        write("b.png", content(100, 2));
+        imageStorage.close();
+        try (var channel = FileChannel.open(segments()[0], StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 0}), 23 + 5 + 100 + 23 + 5 + 50);
+        }
+
+        // Act
+        imageStorage = open();
+        write("c.png", content(100, 3));
+        imageStorage.close();
+        imageStorage = open();
+
+        // Assert
+        assertArrayEquals(content(100, 1), read("a.png"));
+        assertNull(imageStorage.stat("b.png"));
+        assertArrayEquals(content(100, 3), read("c.png"));
+    }
+
+    @Test
+    void delete_MostOfSealedSegment_CompactsSegment() throws IOException {
+        // Arrange
+        for (int i = 0; i < 5; i++)
+            write("image" + i + ".png", content(1000, i));
+        Path sealed = segments()[0];
+
+        // Act
+        imageStorage.delete("image0.png");
+        imageStorage.delete("image1.png");
+
+        // Assert
+        assertFalse(Files.exists(sealed));
+        assertArrayEquals(content(1000, 2), read("image2.png"));
+        assertArrayEquals(content(1000, 3), read("image3.png"));
+        imageStorage.close();
+        imageStorage = open();
+        assertNull(imageStorage.stat("image0.png"));
+        assertArrayEquals(content(1000, 2), read("image2.png"));
+        assertArrayEquals(content(1000, 4), read("image4.png"));
+    }
+
+    private PackedImageStorage open() throws IOException {
+        return new PackedImageStorage(directory, SEGMENT_SIZE, MAX_PACKED_SIZE, 0.5, largeFiles);
+    }
+
+    private void write(String location, byte[] content) throws IOException {
+        imageStorage.write(location, out -> out.write(content));
+    }
+
+    private byte[] read(String location) throws IOException {
+        try (var in = imageStorage.read(location).getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    private Path[] segments() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.sorted().toArray(Path[]::new);
+        }
+    }
+
+    private static byte[] content(int length, int seed) {
+        var content = new byte[length];
+        for (int i = 0; i < length; i++)
+            content[i] = (byte) (i * 31 + seed);
+        return content;
+    }
+}
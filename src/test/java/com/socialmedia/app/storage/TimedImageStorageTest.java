@@ -0,0 +1,62 @@
+package com.socialmedia.app.storage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimedImageStorageTest {
+    @TempDir
+    private Path root;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private LocalImageStorage localStorage;
+
+    private TimedImageStorage imageStorage;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        localStorage = new LocalImageStorage(root);
+        imageStorage = new TimedImageStorage(localStorage, "local", meterRegistry);
+    }
+
+    @Test
+    void read_ContentStreamed_RecordsTransferOnClose() throws IOException {
+        // Arrange
+        imageStorage.write("abcdef.png", out -> out.write(new byte[]{1, 2, 3}));
+        var resource = imageStorage.read("abcdef.png");
+
+        // Act
+        byte[] content;
+        try (var in = resource.getInputStream()) {
+            content = in.readAllBytes();
+        }
+
+        // Assert
+        assertArrayEquals(new byte[]{1, 2, 3}, content);
+        assertEquals(1L, meterRegistry.timer("images.storage.transfers", "backend", "local").count());
+        assertEquals(1L, meterRegistry.timer("images.storage.reads", "backend", "local").count());
+    }
+
+    @Test
+    void read_LocalFile_KeepsFileForSendfile() throws IOException {
+        // Arrange
+        imageStorage.write("abcdef.png", out -> out.write(new byte[]{1, 2, 3}));
+
+        // Act
+        var resource = imageStorage.read("abcdef.png");
+
+        // Assert
+        assertTrue(resource.isFile());
+        assertEquals(localStorage.path("abcdef.png").toFile(), resource.getFile());
+        assertEquals(3L, resource.contentLength());
+        assertEquals(0L, meterRegistry.timer("images.storage.transfers", "backend", "local").count());
+    }
+}